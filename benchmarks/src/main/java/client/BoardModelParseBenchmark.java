@@ -0,0 +1,50 @@
+package main.java.client;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side parsing of a BOARD_UPDATE snapshot into a BoardModel at different board sizes
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoardModelParseBenchmark {
+    private static final String[] COLUMN_NAMES = {"To Do", "In Progress", "Done", "Completed"};
+
+    @Param({"1000", "10000", "100000"})
+    public int tasks;
+
+    private String boardData;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder[] columns = new StringBuilder[COLUMN_NAMES.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = new StringBuilder(COLUMN_NAMES[i]).append(':');
+        }
+        for (int i = 0; i < tasks; i++) {
+            StringBuilder column = columns[random.nextInt(columns.length)];
+            if (column.charAt(column.length() - 1) != ':') {
+                column.append(';');
+            }
+            column.append(String.format("%08x-0000-4000-8000-%012d", random.nextInt(), i)).append(',')
+                  .append("Task ").append(i).append(',')
+                  .append("Description of task ").append(i).append(" with some typical detail text").append(',')
+                  .append("user").append(random.nextInt(50)).append(',')
+                  .append("2025-0").append(1 + random.nextInt(9)).append("-1").append(random.nextInt(10));
+        }
+        boardData = String.join("|", columns);
+    }
+
+    @Benchmark
+    public BoardModel parse() {
+        return BoardModel.parse(1, 1, boardData);
+    }
+}
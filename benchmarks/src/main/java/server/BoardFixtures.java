@@ -0,0 +1,64 @@
+package main.java.server;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic boards for the benchmarks, so results stay comparable across commits
+ */
+final class BoardFixtures {
+    static final String[] COLUMN_NAMES = {"To Do", "In Progress", "Done", "Completed"};
+
+    private BoardFixtures() {
+    }
+
+    /**
+     * Build a board with the given number of tasks spread over the default columns
+     */
+    static List<KanbanColumn> board(int taskCount) {
+        Random random = new Random(42);
+        List<KanbanColumn> board = new ArrayList<>();
+        for (String name : COLUMN_NAMES) {
+            board.add(new KanbanColumn(name));
+        }
+        for (int i = 0; i < taskCount; i++) {
+            board.get(random.nextInt(COLUMN_NAMES.length)).addTask(task(i, random));
+        }
+        return board;
+    }
+
+    /**
+     * Make the server's board a fixture board, by writing it to the board file and loading it
+     * the way the server does at startup. System.out is discarded, since the server logs each
+     * board load and the benchmarks should measure the work rather than the terminal.
+     */
+    static void loadIntoServer(int taskCount) throws IOException {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        try (ObjectOutputStream out = new ObjectOutputStream(
+                new FileOutputStream(System.getProperty("kanban.boardFile")))) {
+            out.writeObject(board(taskCount));
+        }
+        KanbanServer.loadBoardState();
+    }
+
+    /**
+     * Build a single column with the given number of tasks
+     */
+    static KanbanColumn column(int taskCount) {
+        Random random = new Random(42);
+        KanbanColumn column = new KanbanColumn("To Do");
+        for (int i = 0; i < taskCount; i++) {
+            column.addTask(task(i, random));
+        }
+        return column;
+    }
+
+    static Task task(int number, Random random) {
+        return new Task(String.format("%08x-0000-4000-8000-%012d", random.nextInt(), number),
+                "Task " + number, "Description of task " + number + " with some typical detail text",
+                "user" + random.nextInt(50), "2025-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10));
+    }
+}
@@ -0,0 +1,54 @@
+package main.java.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshot serialization and board persistence at different board sizes.
+ * The board file goes to target/ so the real kanban_board.dat is never touched.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dkanban.boardFile=target/benchmark_board.dat")
+@State(Scope.Benchmark)
+public class BoardStateBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BoardFixtures.loadIntoServer(tasks);
+    }
+
+    @Benchmark
+    public String serializeBoardState() {
+        return KanbanServer.serializeBoardState(false);
+    }
+
+    @Benchmark
+    public String serializeBoardStateWithDescriptions() {
+        return KanbanServer.serializeBoardState(true);
+    }
+
+    @Benchmark
+    public void saveBoardState() {
+        KanbanServer.saveBoardState();
+    }
+
+    // Deserializing the board file alone
+    @Benchmark
+    public Object readBoardFile() throws Exception {
+        return KanbanServer.readBoardFile();
+    }
+
+    // A full startup load: reading the file, then rebuilding the aggregates and due date reminders
+    // and loading the archive index
+    @Benchmark
+    public void loadBoardState() {
+        KanbanServer.loadBoardState();
+    }
+}
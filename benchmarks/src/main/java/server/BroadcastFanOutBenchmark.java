@@ -0,0 +1,68 @@
+package main.java.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Broadcasting one board snapshot to N clients.
+ * Each sink is an auto-flushing PrintWriter like ClientHandler's, writing to an in-memory stream
+ * that discards the bytes, so the numbers cover encoding and copying per client but not the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dkanban.boardFile=target/benchmark_board.dat")
+@State(Scope.Benchmark)
+public class BroadcastFanOutBenchmark {
+    @Param({"10", "100", "1000"})
+    public int clients;
+
+    @Param({"100", "1000"})
+    public int tasks;
+
+    private PrintWriter[] sinks;
+    private String snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        sinks = new PrintWriter[clients];
+        for (int i = 0; i < clients; i++) {
+            sinks[i] = new PrintWriter(new CountingStream(), true);
+        }
+
+        BoardFixtures.loadIntoServer(tasks);
+        snapshot = "BOARD_UPDATE|1|1|" + KanbanServer.serializeBoardState(false);
+    }
+
+    @Benchmark
+    public boolean broadcast() {
+        boolean error = false;
+        for (PrintWriter sink : sinks) {
+            sink.println(snapshot);
+            error |= sink.checkError();
+        }
+        return error;
+    }
+
+    /**
+     * Discards written bytes but keeps a count, so the writes cannot be optimized away
+     */
+    private static class CountingStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package main.java.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parallel snapshot encoding at 1 to 16 encoder threads, to show how it scales with cores.
+ * copyBoard is the part that still runs under the board lock.
+ * Results above the machine's core count only show the overhead of the extra threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotEncodeBenchmark {
+    @Param({"10000", "100000"})
+    public int tasks;
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int threads;
+
+    private List<KanbanColumn> board;
+    private SnapshotEncoder.BoardSnapshot snapshot;
+    private SnapshotEncoder encoder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BoardFixtures.board(tasks);
+        snapshot = SnapshotEncoder.BoardSnapshot.of(1, 1, board);
+        encoder = new SnapshotEncoder(threads);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(snapshot, false);
+    }
+
+    @Benchmark
+    public String encodeWithDescriptions() {
+        return encoder.encode(snapshot, true);
+    }
+
+    @Benchmark
+    public SnapshotEncoder.BoardSnapshot copyBoard() {
+        return SnapshotEncoder.BoardSnapshot.of(1, 1, board);
+    }
+}
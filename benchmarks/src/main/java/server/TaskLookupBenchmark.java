@@ -0,0 +1,69 @@
+package main.java.server;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task lookup by ID inside a column, as done by MOVE_TASK, UPDATE_TASK and DELETE_TASK.
+ * Looks up IDs from a fixed pseudo-random sequence so every run probes the same positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskLookupBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"10", "1000", "10000", "100000"})
+    public int columnSize;
+
+    private KanbanColumn column;
+    private String[] probeIds;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        column = BoardFixtures.column(columnSize);
+
+        List<Task> tasks = column.getTasks();
+        Random random = new Random(7);
+        probeIds = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeIds[i] = tasks.get(random.nextInt(tasks.size())).getId();
+        }
+    }
+
+    private String nextId() {
+        next = (next + 1) % PROBES;
+        return probeIds[next];
+    }
+
+    /**
+     * Lookup used by moveTask
+     */
+    @Benchmark
+    public Task findTask() {
+        return column.findTask(nextId());
+    }
+
+    /**
+     * Lookup used by updateTask
+     */
+    @Benchmark
+    public int indexOfTask() {
+        return column.indexOfTask(nextId());
+    }
+
+    /**
+     * Missing task, the worst case every lookup hits when a client sends a stale ID
+     */
+    @Benchmark
+    public int indexOfMissingTask() {
+        return column.indexOfTask("no-such-task");
+    }
+}
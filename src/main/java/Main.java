@@ -2,6 +2,7 @@ package main.java;
 
 import javax.swing.*;
 import main.java.client.KanbanClient;
+import main.java.logging.Log;
 import main.java.server.KanbanServer;
 
 /**
@@ -9,12 +10,14 @@ import main.java.server.KanbanServer;
  * Allows the user to start either the server or the client.
  */
 public class Main {
+    private static final Log log = Log.get(Main.class);
+    
     public static void main(String[] args) {
         // Set the look and feel to the system look and feel
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("Could not set look and feel: " + e.getMessage());
         }
         
         // Show a dialog to choose between server and client
@@ -60,7 +63,7 @@ public class Main {
                     "Server Error",
                     JOptionPane.ERROR_MESSAGE
                 );
-                e.printStackTrace();
+                log.error("Error starting server: " + e.getMessage(), e);
             }
         }).start();
         
@@ -0,0 +1,53 @@
+package main.java.client;
+
+/**
+ * A task found in the server's archive, as returned by a search.
+ * Archived tasks are only listed; restoring one puts it back on the board with its description.
+ */
+public class ArchivedTask {
+    private final String id;
+    private final String columnName;
+    private final long archivedAt;
+    private final String assignee;
+    private final String dueDate;
+    private final String title;
+
+    public ArchivedTask(String id, String columnName, long archivedAt, String assignee, String dueDate, String title) {
+        this.id = id;
+        this.columnName = columnName;
+        this.archivedAt = archivedAt;
+        this.assignee = assignee;
+        this.dueDate = dueDate;
+        this.title = title;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the column the task was archived from, where restoring puts it back
+     */
+    public String getColumnName() {
+        return columnName;
+    }
+
+    /**
+     * Get when the task was archived, in milliseconds since the epoch
+     */
+    public long getArchivedAt() {
+        return archivedAt;
+    }
+
+    public String getAssignee() {
+        return assignee;
+    }
+
+    public String getDueDate() {
+        return dueDate;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
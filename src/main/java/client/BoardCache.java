@@ -0,0 +1,192 @@
+package main.java.client;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Local cache of the last board the client received, plus any edits made while offline.
+ * Stored in a compact binary file so the client can show the board immediately on
+ * launch and reconcile with the server afterwards, or work offline if it is down.
+ */
+public class BoardCache {
+    private static final Log log = Log.get(BoardCache.class);
+    private static final int MAGIC = 0x4B424332; // "KBC2", tasks with description hashes
+
+    private final File file;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "board-cache-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Newest state waiting to be written, older ones are skipped if the writer falls behind
+    private final AtomicReference<Entry> pending = new AtomicReference<>();
+
+    public BoardCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Load the cached board, or return null if there is no usable cache
+     */
+    public Entry load() {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+
+            long epoch = in.readLong();
+            long version = in.readLong();
+
+            int columnCount = in.readInt();
+            List<ColumnData> columns = new ArrayList<>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                String name = readString(in);
+                int taskCount = in.readInt();
+                List<TaskData> tasks = new ArrayList<>(taskCount);
+                for (int j = 0; j < taskCount; j++) {
+                    tasks.add(readTask(in));
+                }
+                columns.add(new ColumnData(name, tasks));
+            }
+
+            int queuedCount = in.readInt();
+            List<String> queuedEdits = new ArrayList<>(queuedCount);
+            for (int i = 0; i < queuedCount; i++) {
+                queuedEdits.add(readString(in));
+            }
+
+            return new Entry(new BoardModel(epoch, version, columns), queuedEdits);
+        } catch (IOException e) {
+            log.warn("Could not read board cache: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Save in the background. Only the newest state is written if saves arrive faster than the disk.
+     */
+    public void saveAsync(BoardModel model, List<String> queuedEdits) {
+        if (pending.getAndSet(new Entry(model, queuedEdits)) == null) {
+            writer.execute(() -> {
+                Entry entry = pending.getAndSet(null);
+                if (entry != null) {
+                    write(entry);
+                }
+            });
+        }
+    }
+
+    /**
+     * Save right away, used when the client is closing
+     */
+    public void saveNow(BoardModel model, List<String> queuedEdits) {
+        pending.set(null);
+        write(new Entry(model, queuedEdits));
+    }
+
+    private synchronized void write(Entry entry) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeLong(entry.model.getEpoch());
+            out.writeLong(entry.model.getVersion());
+
+            out.writeInt(entry.model.getColumns().size());
+            for (ColumnData column : entry.model.getColumns()) {
+                writeString(out, column.getName());
+                out.writeInt(column.getTasks().size());
+                for (TaskData task : column.getTasks()) {
+                    writeTask(out, task);
+                }
+            }
+
+            out.writeInt(entry.queuedEdits.size());
+            for (String edit : entry.queuedEdits) {
+                writeString(out, edit);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write board cache: " + e.getMessage());
+            return;
+        }
+
+        // Replace the old cache in one step so a crash never leaves a half-written file
+        try {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not replace board cache: " + e.getMessage());
+        }
+    }
+
+    // The description is only there if it was fetched, the hash always is
+    private static void writeTask(DataOutputStream out, TaskData task) throws IOException {
+        writeString(out, task.getId());
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescriptionHash());
+        out.writeBoolean(task.hasDescription());
+        if (task.hasDescription()) {
+            writeString(out, task.getDescription());
+        }
+        writeString(out, task.getAssignee());
+        writeString(out, task.getDueDate());
+    }
+
+    private static TaskData readTask(DataInputStream in) throws IOException {
+        String id = readString(in);
+        String title = readString(in);
+        String descriptionHash = readString(in);
+        String description = in.readBoolean() ? readString(in) : null;
+        String assignee = readString(in);
+        String dueDate = readString(in);
+        TaskData task = TaskData.summary(id, title, descriptionHash, assignee, dueDate);
+        return description != null ? task.withDescription(description) : task;
+    }
+
+    // Length-prefixed UTF-8, since writeUTF cannot hold strings over 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A cached board with the edits that were queued while offline
+     */
+    public static class Entry {
+        private final BoardModel model;
+        private final List<String> queuedEdits;
+
+        public Entry(BoardModel model, List<String> queuedEdits) {
+            this.model = model;
+            this.queuedEdits = Collections.unmodifiableList(new ArrayList<>(queuedEdits));
+        }
+
+        public BoardModel getModel() {
+            return model;
+        }
+
+        public List<String> getQueuedEdits() {
+            return queuedEdits;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package main.java.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Immutable snapshot of the board as seen by the client, tagged with the server
+ * epoch and board version it was built from. Built on the network reader thread
+ * and handed to the UI thread as a whole.
+ */
+public class BoardModel {
+    public static final BoardModel EMPTY = new BoardModel(-1, -1, Collections.emptyList());
+
+    private final long epoch;
+    private final long version;
+    private final List<ColumnData> columns;
+
+    public BoardModel(long epoch, long version, List<ColumnData> columns) {
+        this.epoch = epoch;
+        this.version = version;
+        this.columns = Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * Parse the board data of a BOARD_UPDATE message.
+     * Format: column:task;task|column:... where each task is id,title,descriptionHash,assignee,dueDate
+     */
+    public static BoardModel parse(long epoch, long version, String boardData) {
+        List<ColumnData> columns = new ArrayList<>();
+
+        if (!boardData.isEmpty()) {
+            for (String columnString : boardData.split("\\|")) {
+                String[] columnParts = columnString.split(":", 2);
+                List<TaskData> tasks = new ArrayList<>();
+
+                // Parse tasks if there are any
+                if (columnParts.length > 1 && !columnParts[1].isEmpty()) {
+                    for (String taskString : columnParts[1].split(";")) {
+                        String[] taskParts = taskString.split(",", -1);
+
+                        if (taskParts.length >= 5) {
+                            tasks.add(TaskData.summary(
+                                taskParts[0], // id
+                                taskParts[1], // title
+                                taskParts[2], // descriptionHash
+                                taskParts[3], // assignee
+                                taskParts[4]  // dueDate
+                            ));
+                        }
+                    }
+                }
+
+                columns.add(new ColumnData(columnParts[0], tasks));
+            }
+        }
+
+        return new BoardModel(epoch, version, columns);
+    }
+
+    /**
+     * Get a new model with a board event replayed by the server applied to it.
+     * Server events carry description hashes in place of descriptions.
+     */
+    public BoardModel apply(long newVersion, String event) {
+        return apply(newVersion, event, false);
+    }
+
+    /**
+     * Get a new model with one of our own edits applied to it, which still has its descriptions
+     */
+    public BoardModel applyEdit(String edit) {
+        return apply(version, edit, true);
+    }
+
+    private BoardModel apply(long newVersion, String event, boolean withDescriptions) {
+        String[] parts = event.split("\\|", -1);
+        List<ColumnData> newColumns = new ArrayList<>(columns);
+
+        switch (parts[0]) {
+            case "ADD_TASK":
+                // Format: ADD_TASK|columnName|taskId|title|description|assignee|dueDate, with a description hash from the server
+                // Skipped if the task is already there, e.g. an optimistic add the server has since confirmed
+                if (!containsTask(parts[2])) {
+                    replaceColumn(newColumns, parts[1],
+                            column -> column.withTask(taskOf(parts, withDescriptions)));
+                }
+                break;
+
+            case "MOVE_TASK": {
+                // Format: MOVE_TASK|taskId|fromColumn|toColumn
+                ColumnData fromColumn = findColumn(parts[2]);
+                TaskData movedTask = fromColumn != null ? fromColumn.findTask(parts[1]) : null;
+                if (movedTask != null) {
+                    replaceColumn(newColumns, parts[2], column -> column.withoutTask(parts[1]));
+                    replaceColumn(newColumns, parts[3], column -> column.withTask(movedTask));
+                }
+                break;
+            }
+
+            case "UPDATE_TASK":
+                // Format: UPDATE_TASK|columnName|taskId|title|description|assignee|dueDate, with a description hash from the server
+                replaceColumn(newColumns, parts[1],
+                        column -> column.withReplacedTask(taskOf(parts, withDescriptions)));
+                break;
+
+            case "DELETE_TASK":
+                // Format: DELETE_TASK|columnName|taskId
+                replaceColumn(newColumns, parts[1], column -> column.withoutTask(parts[2]));
+                break;
+
+            case "CLEAR_COMPLETED":
+                replaceColumn(newColumns, "Done", ColumnData::cleared);
+                replaceColumn(newColumns, "Completed", ColumnData::cleared);
+                break;
+
+            case "ARCHIVE_TASKS": {
+                // Format: ARCHIVE_TASKS|columnName|taskId,taskId,...
+                Set<String> archived = new HashSet<>(Arrays.asList(parts[2].split(",")));
+                replaceColumn(newColumns, parts[1], column -> column.withoutTasks(archived));
+                break;
+            }
+        }
+
+        return new BoardModel(epoch, newVersion, newColumns);
+    }
+
+    private static TaskData taskOf(String[] parts, boolean withDescription) {
+        return withDescription
+                ? new TaskData(parts[2], parts[3], parts[4], parts[5], parts[6])
+                : TaskData.summary(parts[2], parts[3], parts[4], parts[5], parts[6]);
+    }
+
+    private static void replaceColumn(List<ColumnData> columns, String columnName,
+                                      UnaryOperator<ColumnData> change) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equals(columnName)) {
+                columns.set(i, change.apply(columns.get(i)));
+                return;
+            }
+        }
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<ColumnData> getColumns() {
+        return columns;
+    }
+
+    public boolean containsTask(String taskId) {
+        for (ColumnData column : columns) {
+            if (column.findTask(taskId) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Find a column by name
+     */
+    public ColumnData findColumn(String columnName) {
+        for (ColumnData column : columns) {
+            if (column.getName().equals(columnName)) {
+                return column;
+            }
+        }
+        return null;
+    }
+}
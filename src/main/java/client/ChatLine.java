@@ -0,0 +1,28 @@
+package main.java.client;
+
+/**
+ * A chat message from the server's chat history
+ */
+public class ChatLine {
+    private final long seq;
+    private final String username;
+    private final String message;
+
+    public ChatLine(long seq, String username, String message) {
+        this.seq = seq;
+        this.username = username;
+        this.message = message;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
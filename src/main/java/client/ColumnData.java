@@ -0,0 +1,70 @@
+package main.java.client;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable data class for a Kanban column on the client side.
+ * Changes produce a new column so a model can be built on one thread and shown on another.
+ */
+public class ColumnData {
+    private final String name;
+    private final List<TaskData> tasks;
+    
+    public ColumnData(String name, List<TaskData> tasks) {
+        this.name = name;
+        this.tasks = Collections.unmodifiableList(tasks);
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public List<TaskData> getTasks() {
+        return tasks;
+    }
+    
+    public TaskData findTask(String taskId) {
+        for (TaskData task : tasks) {
+            if (task.getId().equals(taskId)) {
+                return task;
+            }
+        }
+        return null;
+    }
+    
+    public ColumnData withTask(TaskData task) {
+        List<TaskData> newTasks = new ArrayList<>(tasks.size() + 1);
+        newTasks.addAll(tasks);
+        newTasks.add(task);
+        return new ColumnData(name, newTasks);
+    }
+    
+    public ColumnData withoutTask(String taskId) {
+        List<TaskData> newTasks = new ArrayList<>(tasks);
+        newTasks.removeIf(task -> task.getId().equals(taskId));
+        return new ColumnData(name, newTasks);
+    }
+    
+    public ColumnData withoutTasks(Collection<String> taskIds) {
+        List<TaskData> newTasks = new ArrayList<>(tasks);
+        newTasks.removeIf(task -> taskIds.contains(task.getId()));
+        return new ColumnData(name, newTasks);
+    }
+    
+    public ColumnData withReplacedTask(TaskData task) {
+        List<TaskData> newTasks = new ArrayList<>(tasks);
+        for (int i = 0; i < newTasks.size(); i++) {
+            if (newTasks.get(i).getId().equals(task.getId())) {
+                newTasks.set(i, task);
+            }
+        }
+        return new ColumnData(name, newTasks);
+    }
+    
+    public ColumnData cleared() {
+        return new ColumnData(name, Collections.emptyList());
+    }
+}
@@ -6,23 +6,36 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.datatransfer.*;
 import java.io.*;
-import java.net.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import main.java.logging.Log;
 
 /**
  * Client application for the Kanban Board
  * Provides a GUI for interacting with the Kanban board server
  */
 public class KanbanClient extends JFrame {
+    private static final Log log = Log.get(KanbanClient.class);
     private static final String SERVER_ADDRESS = "localhost";
     private static final int SERVER_PORT = 5000;
+    private static final int ARCHIVE_SEARCH_LIMIT = 200;
+    private static final DateTimeFormatter ARCHIVED_AT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
     
-    private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
-    private String username;
+    // Connection to the server, owns the board model and all protocol handling
+    private KanbanSession session;
+    
+    // Newest board waiting to be shown, older ones are dropped if the UI thread falls behind
+    private final AtomicReference<BoardModel> pendingModel = new AtomicReference<>();
+    
+    // Chat history paging state
+    private long chatHistoryCursor = 0;
+    private JButton loadEarlierButton;
     
     // GUI Components
     private JPanel mainPanel;
@@ -30,8 +43,13 @@ public class KanbanClient extends JFrame {
     private JPanel chatPanel;
     private JTextArea chatArea;
     private JTextField chatField;
-    private Map<String, JPanel> columnPanels;
-    private Map<String, Map<String, TaskCard>> taskCards;
+    private JLabel aggregatesLabel;
+    private Map<String, DefaultListModel<TaskData>> columnModels;
+    private Map<String, String> taskColumns;
+    private final TaskCardRenderer taskCardRenderer = new TaskCardRenderer();
+    
+    // Column names in the order the board UI was last built with
+    private List<String> renderedColumns = new ArrayList<>();
     
     // Data
     private List<ColumnData> columns;
@@ -44,8 +62,8 @@ public class KanbanClient extends JFrame {
         setLocationRelativeTo(null);
         
         // Initialize data structures
-        columnPanels = new HashMap<>();
-        taskCards = new HashMap<>();
+        columnModels = new HashMap<>();
+        taskColumns = new HashMap<>();
         columns = new ArrayList<>();
         
         // Set up the main panel with a split layout
@@ -69,6 +87,15 @@ public class KanbanClient extends JFrame {
         chatInputPanel.add(chatField, BorderLayout.CENTER);
         chatInputPanel.add(sendButton, BorderLayout.EAST);
         
+        // Button to page further back through the chat history
+        loadEarlierButton = new JButton("Load Earlier Messages");
+        loadEarlierButton.setEnabled(false);
+        loadEarlierButton.addActionListener(e -> {
+            loadEarlierButton.setEnabled(false);
+            session.requestChatHistory(chatHistoryCursor, KanbanSession.CHAT_HISTORY_PAGE_SIZE);
+        });
+        
+        chatPanel.add(loadEarlierButton, BorderLayout.NORTH);
         chatPanel.add(chatScrollPane, BorderLayout.CENTER);
         chatPanel.add(chatInputPanel, BorderLayout.SOUTH);
         
@@ -76,7 +103,7 @@ public class KanbanClient extends JFrame {
         ActionListener sendChatAction = e -> {
             String message = chatField.getText().trim();
             if (!message.isEmpty()) {
-                sendMessage("CHAT_MESSAGE|" + message);
+                session.sendChat(message);
                 chatField.setText("");
             }
         };
@@ -98,26 +125,35 @@ public class KanbanClient extends JFrame {
         addTaskButton.addActionListener(e -> showAddTaskDialog());
         
         JButton refreshButton = new JButton("Refresh");
-        refreshButton.addActionListener(e -> sendMessage("REFRESH"));
+        refreshButton.addActionListener(e -> session.refresh());
         
         JButton clearCompletedButton = new JButton("Clear Completed Tasks");
         clearCompletedButton.addActionListener(e -> {
             int result = JOptionPane.showConfirmDialog(
                 this,
-                "Are you sure you want to clear all completed tasks from the 'Done' and 'Completed' columns?",
+                "Are you sure you want to move all completed tasks from the 'Done' and 'Completed' columns to the archive?",
                 "Clear Completed Tasks",
                 JOptionPane.YES_NO_OPTION,
                 JOptionPane.WARNING_MESSAGE
             );
             
             if (result == JOptionPane.YES_OPTION) {
-                sendMessage("CLEAR_COMPLETED");
+                session.clearCompleted();
             }
         });
         
+        JButton archiveButton = new JButton("Archive");
+        archiveButton.addActionListener(e -> showArchiveDialog());
+        
         toolbar.add(addTaskButton);
         toolbar.add(refreshButton);
         toolbar.add(clearCompletedButton);
+        toolbar.add(archiveButton);
+        
+        // Live task counts from the server
+        aggregatesLabel = new JLabel();
+        toolbar.addSeparator();
+        toolbar.add(aggregatesLabel);
         
         mainPanel.add(toolbar, BorderLayout.NORTH);
         
@@ -141,25 +177,25 @@ public class KanbanClient extends JFrame {
      */
     private void showLoginDialog() {
         JTextField usernameField = new JTextField(15);
-        
+    
         JPanel panel = new JPanel(new GridLayout(0, 1));
         panel.add(new JLabel("Enter your username:"));
         panel.add(usernameField);
-        
+    
         int result = JOptionPane.showConfirmDialog(
             this, panel, "Login", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
-        
+    
         if (result == JOptionPane.OK_OPTION) {
-            username = usernameField.getText().trim();
-            
+            String username = usernameField.getText().trim();
+    
             if (username.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "Username cannot be empty", "Error", JOptionPane.ERROR_MESSAGE);
                 showLoginDialog();
                 return;
             }
-            
+    
             // Connect to the server
-            if (connectToServer()) {
+            if (connectToServer(username)) {
                 setVisible(true);
             } else {
                 System.exit(0);
@@ -170,20 +206,20 @@ public class KanbanClient extends JFrame {
     }
     
     /**
-     * Connect to the Kanban board server
+     * Connect to the Kanban board server.
+     * The board from the last session is shown straight away and brought up to date by the server,
+     * or shown offline if the server is down.
      */
-    private boolean connectToServer() {
+    private boolean connectToServer(String username) {
+        // In a sharded cluster, pick the board with -Dkanban.board and connect to the router
+        String boardName = System.getProperty("kanban.board");
+        String cacheName = boardName != null ? username + "_" + boardName : username;
+        File cacheFile = new File("kanban_client_" + cacheName.replaceAll("[^A-Za-z0-9_-]", "_") + ".cache");
+        session = new KanbanSession(SERVER_ADDRESS, SERVER_PORT, username, boardName, cacheFile);
+        session.addListener(new SessionListener());
+    
         try {
-            socket = new Socket(SERVER_ADDRESS, SERVER_PORT);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-            
-            // Send the username to the server
-            sendMessage("LOGIN|" + username);
-            
-            // Start a thread to listen for server messages
-            new Thread(this::listenForServerMessages).start();
-            
+            session.connect();
             return true;
         } catch (IOException e) {
             JOptionPane.showMessageDialog(
@@ -200,135 +236,183 @@ public class KanbanClient extends JFrame {
      * Disconnect from the server
      */
     private void disconnect() {
-        try {
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (session != null) {
+            session.close();
         }
     }
     
     /**
-     * Send a message to the server
+     * Passes session events on to the UI thread.
+     * Board changes are coalesced: only one render is queued at a time and it always picks up
+     * the newest board, so a burst of updates costs one render instead of one per update.
      */
-    private void sendMessage(String message) {
-        if (out != null) {
-            out.println(message);
+    private class SessionListener implements KanbanListener {
+        @Override
+        public void boardChanged(BoardModel board) {
+            if (pendingModel.getAndSet(board) == null) {
+                SwingUtilities.invokeLater(KanbanClient.this::renderPendingModel);
+            }
+        }
+    
+        @Override
+        public void chatMessage(String username, String message) {
+            SwingUtilities.invokeLater(() -> chatArea.append(username + ": " + message + "\n"));
+        }
+    
+        @Override
+        public void chatHistory(List<ChatLine> messages, long nextCursor) {
+            StringBuilder page = new StringBuilder();
+            for (ChatLine line : messages) {
+                page.append(line.getUsername()).append(": ").append(line.getMessage()).append("\n");
+            }
+    
+            // Older pages go above what is already shown
+            SwingUtilities.invokeLater(() -> {
+                chatArea.insert(page.toString(), 0);
+                chatHistoryCursor = nextCursor;
+                loadEarlierButton.setEnabled(nextCursor > 0);
+            });
+        }
+    
+        @Override
+        public void userJoined(String username) {
+            SwingUtilities.invokeLater(() -> chatArea.append(username + " has joined the board.\n"));
+        }
+    
+        @Override
+        public void userLeft(String username) {
+            SwingUtilities.invokeLater(() -> chatArea.append(username + " has left the board.\n"));
+        }
+    
+        @Override
+        public void connectionChanged(boolean online) {
+            // Show whether we are connected in the window title
+            SwingUtilities.invokeLater(() ->
+                setTitle(online ? "Kanban Board" : "Kanban Board (offline - edits will be sent when reconnected)"));
+        }
+    
+        @Override
+        public void aggregatesChanged(Map<String, Integer> aggregates) {
+            SwingUtilities.invokeLater(() -> showAggregates(aggregates));
+        }
+    
+        @Override
+        public void taskDue(String taskId, String title, String assignee, String dueDate, boolean overdue) {
+            String who = assignee.isEmpty() ? "" : " (" + assignee + ")";
+            String reminder = overdue ? " is overdue, it was due " + dueDate : " is due today";
+            SwingUtilities.invokeLater(() -> chatArea.append("Reminder: \"" + title + "\"" + who + reminder + ".\n"));
+        }
+    
+        @Override
+        public void editRejected(String edit, String reason) {
+            SwingUtilities.invokeLater(() ->
+                chatArea.append("Change rejected by server (" + reason + "), it has been undone.\n"));
         }
     }
     
     /**
-     * Listen for messages from the server
+     * Show the task counts in the toolbar: per column with its WIP limit, open tasks by due date and
+     * per assignee. Columns over their limit are shown in red.
      */
-    private void listenForServerMessages() {
-        try {
-            String message;
-            while ((message = in.readLine()) != null) {
-                final String finalMessage = message;
-                SwingUtilities.invokeLater(() -> processServerMessage(finalMessage));
-            }
-        } catch (IOException e) {
-            if (!socket.isClosed()) {
-                JOptionPane.showMessageDialog(
-                    this,
-                    "Connection to server lost: " + e.getMessage(),
-                    "Connection Error",
-                    JOptionPane.ERROR_MESSAGE
-                );
-                disconnect();
+    private void showAggregates(Map<String, Integer> aggregates) {
+        List<String> parts = new ArrayList<>();
+        for (ColumnData column : columns) {
+            int count = aggregates.getOrDefault("column:" + column.getName(), 0);
+            Integer limit = aggregates.get("limit:" + column.getName());
+            String text = escapeHtml(column.getName()) + " " + count + (limit != null ? "/" + limit : "");
+            parts.add(limit != null && count > limit ? "<font color='red'>" + text + "</font>" : text);
+        }
+        parts.add("Overdue " + aggregates.getOrDefault("due:overdue", 0));
+        parts.add("Due later " + aggregates.getOrDefault("due:later", 0));
+        for (Map.Entry<String, Integer> entry : aggregates.entrySet()) {
+            if (entry.getKey().startsWith("assignee:")) {
+                parts.add(escapeHtml(entry.getKey().substring("assignee:".length())) + " " + entry.getValue());
             }
         }
+        aggregatesLabel.setText("<html>" + String.join(" &middot; ", parts) + "</html>");
+    }
+    
+    private static String escapeHtml(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
     }
     
     /**
-     * Process a message from the server
+     * Show the newest pending board, called on the UI thread
      */
-    private void processServerMessage(String message) {
-        System.out.println("Received message from server: " + message);
-        String[] parts = message.split("\\|");
-        String command = parts[0];
-        
-        switch (command) {
-            case "BOARD_UPDATE":
-                String boardData = "";
-                if (parts.length > 1) {
-                    boardData = parts[1];
-                    // If there are more parts, they are part of the board data (split by |)
-                    for (int i = 2; i < parts.length; i++) {
-                        boardData += "|" + parts[i];
-                    }
-                }
-                updateBoard(boardData);
-                break;
-                
-            case "USER_JOINED":
-                chatArea.append(parts[1] + " has joined the board.\n");
-                break;
-                
-            case "USER_LEFT":
-                chatArea.append(parts[1] + " has left the board.\n");
-                break;
-                
-            case "CHAT":
-                chatArea.append(parts[1] + ": " + parts[2] + "\n");
-                break;
+    private void renderPendingModel() {
+        BoardModel model = pendingModel.getAndSet(null);
+        if (model == null) {
+            return;
         }
+    
+        columns = model.getColumns();
+        log.debug(() -> "Showing board version " + model.getVersion() + " with " + model.getColumns().size() + " columns");
+    
+        // Update only the parts of the board UI that changed
+        reconcileBoardUI();
+        showAggregates(session.getAggregates());
     }
     
     /**
-     * Update the board with the data received from the server
+     * Bring the board UI in line with the current data, touching only what changed.
+     * Each column's list model is diffed against the new tasks by task ID, so only the
+     * rows that were added, removed, moved or edited fire change events and get repainted.
      */
-    private void updateBoard(String boardData) {
-        // Clear existing data
-        columns.clear();
-        columnPanels.clear();
-        taskCards.clear();
-        
-        System.out.println("Received board data: " + boardData);
-        
-        // Parse the board data
-        if (!boardData.isEmpty()) {
-            String[] columnStrings = boardData.split("\\|");
-            System.out.println("Number of columns in data: " + columnStrings.length);
-            
-            for (String columnString : columnStrings) {
-                String[] columnParts = columnString.split(":");
-                String columnName = columnParts[0];
-                System.out.println("Parsing column: " + columnName);
-                
-                ColumnData column = new ColumnData(columnName);
-                columns.add(column);
-                
-                // Parse tasks if there are any
-                if (columnParts.length > 1 && !columnParts[1].isEmpty()) {
-                    String[] taskStrings = columnParts[1].split(";");
-                    
-                    for (String taskString : taskStrings) {
-                        String[] taskParts = taskString.split(",");
-                        
-                        if (taskParts.length >= 5) {
-                            TaskData task = new TaskData(
-                                taskParts[0], // id
-                                taskParts[1], // title
-                                taskParts[2], // description
-                                taskParts[3], // assignee
-                                taskParts[4]  // dueDate
-                            );
-                            column.addTask(task);
-                        }
-                    }
-                }
-            }
+    private void reconcileBoardUI() {
+        List<String> columnNames = new ArrayList<>();
+        for (ColumnData column : columns) {
+            columnNames.add(column.getName());
+        }
+        
+        // Adding, removing or reordering columns changes the layout itself, so build it from scratch
+        if (!columnNames.equals(renderedColumns)) {
+            rebuildBoardUI();
+            return;
         }
         
-        System.out.println("Parsed columns:");
+        taskColumns.clear();
         for (ColumnData column : columns) {
-            System.out.println("- " + column.getName() + " (tasks: " + column.getTasks().size() + ")");
+            reconcileColumnModel(columnModels.get(column.getName()), column.getTasks());
+            for (TaskData task : column.getTasks()) {
+                taskColumns.put(task.getId(), column.getName());
+            }
+        }
+    }
+    
+    /**
+     * Apply the minimal set of list model changes that turns the model into the given tasks
+     */
+    private static void reconcileColumnModel(DefaultListModel<TaskData> model, List<TaskData> tasks) {
+        Set<String> taskIds = new HashSet<>();
+        for (TaskData task : tasks) {
+            taskIds.add(task.getId());
         }
         
-        // Rebuild the board UI
-        rebuildBoardUI();
+        // Drop rows for tasks that were deleted or moved to another column
+        for (int i = model.size() - 1; i >= 0; i--) {
+            if (!taskIds.contains(model.get(i).getId())) {
+                model.remove(i);
+            }
+        }
+        
+        for (int i = 0; i < tasks.size(); i++) {
+            TaskData task = tasks.get(i);
+            if (i < model.size() && model.get(i).getId().equals(task.getId())) {
+                if (!model.get(i).equals(task)) {
+                    model.set(i, task);
+                }
+                continue;
+            }
+            
+            // The task is new here or further down the column, take it out of its old row first
+            for (int j = i + 1; j < model.size(); j++) {
+                if (model.get(j).getId().equals(task.getId())) {
+                    model.remove(j);
+                    break;
+                }
+            }
+            model.add(i, task);
+        }
     }
     
     /**
@@ -337,6 +421,12 @@ public class KanbanClient extends JFrame {
     private void rebuildBoardUI() {
         // Remove all components from the board panel
         boardPanel.removeAll();
+        columnModels.clear();
+        taskColumns.clear();
+        renderedColumns = new ArrayList<>();
+        for (ColumnData column : columns) {
+            renderedColumns.add(column.getName());
+        }
         
         // Create a main panel with vertical layout to hold active and completed sections
         JPanel mainBoardPanel = new JPanel(new BorderLayout(0, 10));
@@ -344,7 +434,6 @@ public class KanbanClient extends JFrame {
         
         // Create a panel to hold the active columns
         List<ColumnData> activeColumns = new ArrayList<>();
-        ColumnData completedColumn = null;
         
         // Separate active columns from completed columns
         List<ColumnData> completedColumns = new ArrayList<>();
@@ -362,19 +451,7 @@ public class KanbanClient extends JFrame {
         
         // Create each active column
         for (ColumnData column : activeColumns) {
-            JPanel columnPanel = createColumnPanel(column);
-            columnPanels.put(column.getName(), columnPanel);
-            activeColumnsPanel.add(columnPanel);
-            
-            // Create a map for this column's task cards
-            taskCards.put(column.getName(), new HashMap<>());
-            
-            // Add tasks to the column
-            for (TaskData task : column.getTasks()) {
-                TaskCard taskCard = new TaskCard(task, column.getName());
-                columnPanel.add(taskCard);
-                taskCards.get(column.getName()).put(task.getId(), taskCard);
-            }
+            activeColumnsPanel.add(createColumnPanel(column));
         }
         
         // Add the active columns panel to the main board panel
@@ -385,30 +462,16 @@ public class KanbanClient extends JFrame {
             JPanel completedTasksPanel = new JPanel(new BorderLayout());
             completedTasksPanel.setBorder(BorderFactory.createTitledBorder("Completed Tasks"));
             
-            // Create a panel to hold all completed columns side by side
+            // Create a panel to hold all completed columns side by side, each scrolling on its own
             JPanel completedColumnsPanel = new JPanel(new GridLayout(1, completedColumns.size(), 10, 0));
+            completedColumnsPanel.setPreferredSize(new Dimension(0, 150));
             
             // Create each completed column
             for (ColumnData column : completedColumns) {
-                JPanel columnPanel = createColumnPanel(column);
-                columnPanels.put(column.getName(), columnPanel);
-                completedColumnsPanel.add(columnPanel);
-                
-                // Create a map for this column's task cards
-                taskCards.put(column.getName(), new HashMap<>());
-                
-                // Add tasks to the column
-                for (TaskData task : column.getTasks()) {
-                    TaskCard taskCard = new TaskCard(task, column.getName());
-                    columnPanel.add(taskCard);
-                    taskCards.get(column.getName()).put(task.getId(), taskCard);
-                }
+                completedColumnsPanel.add(createColumnPanel(column));
             }
             
-            // Add the completed columns panel to a scroll pane
-            JScrollPane completedScrollPane = new JScrollPane(completedColumnsPanel);
-            completedScrollPane.setPreferredSize(new Dimension(0, 150));
-            completedTasksPanel.add(completedScrollPane, BorderLayout.CENTER);
+            completedTasksPanel.add(completedColumnsPanel, BorderLayout.CENTER);
             
             // Add the completed tasks panel to the main board panel
             mainBoardPanel.add(completedTasksPanel, BorderLayout.SOUTH);
@@ -427,18 +490,33 @@ public class KanbanClient extends JFrame {
     }
     
     /**
-     * Create a panel for a column
+     * Create the scrolling task list for a column.
+     * Tasks are drawn by the shared card renderer, so only the cards in view are ever painted.
      */
-    private JPanel createColumnPanel(ColumnData column) {
-        JPanel panel = new JPanel();
-        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
-        panel.setBorder(BorderFactory.createTitledBorder(column.getName()));
-        panel.setBackground(Color.LIGHT_GRAY);
-        
-        // Make the panel a drop target for tasks
-        panel.setTransferHandler(new TaskTransferHandler(column.getName()));
-        
-        return panel;
+    private JScrollPane createColumnPanel(ColumnData column) {
+        DefaultListModel<TaskData> model = new DefaultListModel<>();
+        for (TaskData task : column.getTasks()) {
+            model.addElement(task);
+            taskColumns.put(task.getId(), column.getName());
+        }
+        columnModels.put(column.getName(), model);
+        
+        JList<TaskData> list = new JList<>(model);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setBackground(Color.LIGHT_GRAY);
+        list.setVisibleRowCount(5);
+        taskCardRenderer.install(list);
+        
+        // Drag tasks out of the list and accept tasks dropped onto it
+        list.setDragEnabled(true);
+        list.setDropMode(DropMode.ON);
+        list.setTransferHandler(new TaskTransferHandler(column.getName()));
+        installTaskMouseHandler(list);
+        
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(column.getName()));
+        scrollPane.getViewport().setBackground(Color.LIGHT_GRAY);
+        return scrollPane;
     }
     
     /**
@@ -462,9 +540,7 @@ public class KanbanClient extends JFrame {
         JComboBox<String> columnComboBox = new JComboBox<>();
         
         // Make sure all columns are added to the dropdown
-        System.out.println("Available columns for new task:");
         for (ColumnData column : columns) {
-            System.out.println("- " + column.getName());
             columnComboBox.addItem(column.getName());
         }
         
@@ -534,8 +610,8 @@ public class KanbanClient extends JFrame {
             // Generate a unique ID for the task
             String taskId = UUID.randomUUID().toString();
             
-            // Send the add task message to the server
-            sendMessage("ADD_TASK|" + columnName + "|" + taskId + "|" + title + "|" + description + "|" + assignee + "|" + dueDate);
+            // Send the new task to the server
+            session.addTask(columnName, new TaskData(taskId, title, description, assignee, dueDate));
             
             taskAdded[0] = true;
             dialog.dispose();
@@ -573,9 +649,7 @@ public class KanbanClient extends JFrame {
         JComboBox<String> columnComboBox = new JComboBox<>();
         
         // Add all columns to the dropdown
-        System.out.println("Available columns for edit task:");
         for (ColumnData column : columns) {
-            System.out.println("- " + column.getName());
             columnComboBox.addItem(column.getName());
         }
         
@@ -646,11 +720,11 @@ public class KanbanClient extends JFrame {
             
             // If column has changed, move the task
             if (!newColumnName.equals(columnName)) {
-                sendMessage("MOVE_TASK|" + task.getId() + "|" + columnName + "|" + newColumnName);
+                session.moveTask(task.getId(), columnName, newColumnName);
             }
             
-            // Send the update task message to the server
-            sendMessage("UPDATE_TASK|" + newColumnName + "|" + task.getId() + "|" + title + "|" + description + "|" + assignee + "|" + dueDate);
+            // Send the updated task to the server
+            session.updateTask(newColumnName, new TaskData(task.getId(), title, description, assignee, dueDate));
             
             taskUpdated[0] = true;
             dialog.dispose();
@@ -667,6 +741,102 @@ public class KanbanClient extends JFrame {
         dialog.setVisible(true);
     }
     
+    /**
+     * Show a dialog to search the archive and put archived tasks back on the board.
+     * Opens with the most recently archived tasks.
+     */
+    private void showArchiveDialog() {
+        JDialog dialog = new JDialog(this, "Archive", true);
+        dialog.setLayout(new BorderLayout());
+        dialog.setSize(500, 400);
+        dialog.setLocationRelativeTo(this);
+        
+        // Search field
+        JPanel searchPanel = new JPanel(new BorderLayout(5, 0));
+        searchPanel.setBorder(new EmptyBorder(10, 10, 5, 10));
+        JTextField queryField = new JTextField();
+        queryField.setToolTipText("Title, description or assignee");
+        JButton searchButton = new JButton("Search");
+        searchPanel.add(new JLabel("Search:"), BorderLayout.WEST);
+        searchPanel.add(queryField, BorderLayout.CENTER);
+        searchPanel.add(searchButton, BorderLayout.EAST);
+        
+        // Results, most recently archived first
+        DefaultListModel<ArchivedTask> results = new DefaultListModel<>();
+        JList<ArchivedTask> resultList = new JList<>(results);
+        resultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        resultList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                ArchivedTask task = (ArchivedTask) value;
+                String archivedAt = ARCHIVED_AT_FORMAT.format(Instant.ofEpochMilli(task.getArchivedAt()).atZone(ZoneId.systemDefault()));
+                String text = task.getTitle() + (task.getAssignee().isEmpty() ? "" : " (" + task.getAssignee() + ")")
+                        + " - " + task.getColumnName() + ", archived " + archivedAt;
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        JScrollPane resultScrollPane = new JScrollPane(resultList);
+        resultScrollPane.setBorder(BorderFactory.createCompoundBorder(new EmptyBorder(0, 10, 0, 10), resultScrollPane.getBorder()));
+        
+        // Status and buttons
+        JLabel statusLabel = new JLabel(" ");
+        statusLabel.setBorder(new EmptyBorder(0, 10, 0, 0));
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JButton closeButton = new JButton("Close");
+        JButton restoreButton = new JButton("Restore");
+        restoreButton.setEnabled(false);
+        buttonPanel.add(closeButton);
+        buttonPanel.add(restoreButton);
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        
+        Runnable search = () -> {
+            statusLabel.setText("Searching...");
+            session.searchArchive(queryField.getText().trim(), ARCHIVE_SEARCH_LIMIT).whenComplete((found, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    results.clear();
+                    if (error != null) {
+                        statusLabel.setText("Could not search the archive: " + error.getMessage());
+                        return;
+                    }
+                    for (ArchivedTask task : found) {
+                        results.addElement(task);
+                    }
+                    statusLabel.setText(found.isEmpty() ? "No archived tasks found" : found.size() + " archived tasks");
+                }));
+        };
+        
+        searchButton.addActionListener(e -> search.run());
+        resultList.addListSelectionListener(e -> restoreButton.setEnabled(resultList.getSelectedValue() != null));
+        closeButton.addActionListener(e -> dialog.dispose());
+        restoreButton.addActionListener(e -> {
+            ArchivedTask task = resultList.getSelectedValue();
+            if (task == null) {
+                return;
+            }
+            session.restoreTask(task.getId()).whenComplete((version, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    String reason = error instanceof KanbanSession.EditRejectedException
+                            ? ((KanbanSession.EditRejectedException) error).getReason() : error.getMessage();
+                    statusLabel.setText("Could not restore \"" + task.getTitle() + "\": " + reason);
+                } else {
+                    results.removeElement(task);
+                    statusLabel.setText("Restored \"" + task.getTitle() + "\"");
+                }
+            }));
+        });
+        
+        dialog.add(searchPanel, BorderLayout.NORTH);
+        dialog.add(resultScrollPane, BorderLayout.CENTER);
+        dialog.add(bottomPanel, BorderLayout.SOUTH);
+        
+        dialog.getRootPane().setDefaultButton(searchButton);
+        search.run();
+        dialog.setVisible(true);
+    }
+    
     /**
      * Show a confirmation dialog to delete a task
      */
@@ -680,129 +850,87 @@ public class KanbanClient extends JFrame {
         );
         
         if (result == JOptionPane.YES_OPTION) {
-            // Send the delete task message to the server
-            sendMessage("DELETE_TASK|" + columnName + "|" + task.getId());
+            // Ask the server to delete the task
+            session.deleteTask(columnName, task.getId());
         }
     }
     
     /**
-     * Task card component for displaying a task
+     * Handle clicks on the task cards of a column list.
+     * Left click shows the task details, and the popup trigger opens the context menu for the card under the mouse.
      */
-    private class TaskCard extends JPanel {
-        private TaskData task;
-        private String columnName;
-        
-        public TaskCard(TaskData task, String columnName) {
-            this.task = task;
-            this.columnName = columnName;
-            
-            // Set fixed size for all task cards
-            setPreferredSize(new Dimension(200, 100));
-            setMinimumSize(new Dimension(200, 100));
-            setMaximumSize(new Dimension(200, 100));
-            
-            setLayout(new BorderLayout(5, 5));
-            setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createEmptyBorder(5, 5, 5, 5),
-                BorderFactory.createLineBorder(Color.BLACK)
-            ));
-            setBackground(Color.WHITE);
-            setCursor(new Cursor(Cursor.HAND_CURSOR)); // Change cursor to indicate clickable
-            
-            // Title at the top
-            JLabel titleLabel = new JLabel(task.getTitle());
-            titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD));
-            add(titleLabel, BorderLayout.NORTH);
-            
-            // Assignee at the bottom
-            JLabel assigneeLabel = new JLabel("Assignee: " + task.getAssignee());
-            add(assigneeLabel, BorderLayout.SOUTH);
-            
-            // Add context menu
-            JPopupMenu contextMenu = new JPopupMenu();
-            
-            JMenuItem viewItem = new JMenuItem("View Details");
-            viewItem.addActionListener(e -> showTaskDetailsDialog(task));
-            
-            JMenuItem editItem = new JMenuItem("Edit");
-            editItem.addActionListener(e -> showEditTaskDialog(task, columnName));
-            
-            JMenuItem deleteItem = new JMenuItem("Delete");
-            deleteItem.addActionListener(e -> showDeleteTaskDialog(task, columnName));
+    private void installTaskMouseHandler(JList<TaskData> list) {
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    showContextMenu(e);
+                }
+            }
             
-            contextMenu.add(viewItem);
-            contextMenu.add(editItem);
-            contextMenu.add(deleteItem);
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    showContextMenu(e);
+                }
+            }
             
-            // Make the task card draggable
-            setTransferHandler(new TaskTransferHandler(task.getId()));
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // Clicks are only reported when the mouse did not move, so drags never open the details
+                TaskData task = taskAt(e);
+                if (task != null && SwingUtilities.isLeftMouseButton(e)) {
+                    withDescription(task, KanbanClient.this::showTaskDetailsDialog);
+                }
+            }
             
-            // Combined mouse listener for all interactions
-            addMouseListener(new MouseAdapter() {
-                private boolean isDragging = false;
-                private Point dragStart = null;
-                
-                @Override
-                public void mousePressed(MouseEvent e) {
-                    if (e.isPopupTrigger()) {
-                        showContextMenu(e);
-                        return;
-                    }
-                    
-                    if (e.getButton() == MouseEvent.BUTTON1) {
-                        // Store the starting point for potential drag
-                        dragStart = e.getPoint();
-                    }
+            private void showContextMenu(MouseEvent e) {
+                TaskData task = taskAt(e);
+                if (task == null) {
+                    return;
                 }
+                list.setSelectedValue(task, false);
+                String columnName = getColumnNameForTask(task.getId());
                 
-                @Override
-                public void mouseReleased(MouseEvent e) {
-                    if (e.isPopupTrigger()) {
-                        showContextMenu(e);
-                        return;
-                    }
-                    
-                    // If we didn't drag much, treat it as a click
-                    if (e.getButton() == MouseEvent.BUTTON1 && !isDragging) {
-                        // Left click shows task details
-                        showTaskDetailsDialog(task);
-                    }
-                    
-                    // Reset drag state
-                    isDragging = false;
-                    dragStart = null;
-                }
+                JPopupMenu contextMenu = new JPopupMenu();
                 
-                @Override
-                public void mouseDragged(MouseEvent e) {
-                    if (dragStart != null) {
-                        // If we've moved more than a few pixels, consider it a drag
-                        int dx = Math.abs(e.getX() - dragStart.x);
-                        int dy = Math.abs(e.getY() - dragStart.y);
-                        
-                        if (dx > 5 || dy > 5) {
-                            isDragging = true;
-                            JComponent comp = (JComponent) e.getSource();
-                            TransferHandler handler = comp.getTransferHandler();
-                            handler.exportAsDrag(comp, e, TransferHandler.MOVE);
-                        }
-                    }
-                }
+                JMenuItem viewItem = new JMenuItem("View Details");
+                viewItem.addActionListener(event -> withDescription(task, KanbanClient.this::showTaskDetailsDialog));
                 
-                private void showContextMenu(MouseEvent e) {
-                    contextMenu.show(e.getComponent(), e.getX(), e.getY());
-                }
-            });
+                JMenuItem editItem = new JMenuItem("Edit");
+                editItem.addActionListener(event -> withDescription(task, fullTask -> showEditTaskDialog(fullTask, columnName)));
+                
+                JMenuItem deleteItem = new JMenuItem("Delete");
+                deleteItem.addActionListener(event -> showDeleteTaskDialog(task, columnName));
+                
+                contextMenu.add(viewItem);
+                contextMenu.add(editItem);
+                contextMenu.add(deleteItem);
+                contextMenu.show(list, e.getX(), e.getY());
+            }
             
-            // Also need to add mouse motion listener for drag detection
-            addMouseMotionListener(new MouseAdapter() {
-                @Override
-                public void mouseDragged(MouseEvent e) {
-                    // This is needed to properly detect drags
-                    // The actual logic is in the mouseListener above
+            private TaskData taskAt(MouseEvent e) {
+                int index = list.locationToIndex(e.getPoint());
+                if (index < 0 || !list.getCellBounds(index, index).contains(e.getPoint())) {
+                    return null;
                 }
-            });
-        }
+                return list.getModel().getElementAt(index);
+            }
+        });
+    }
+    
+    /**
+     * Fetch a task's description if we do not have it yet, then show the complete task on the UI thread
+     */
+    private void withDescription(TaskData task, Consumer<TaskData> show) {
+        session.fetchDescription(task).whenComplete((description, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(this, "Could not load the task: " + error.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                show.accept(task.withDescription(description));
+            }
+        }));
     }
     
     /**
@@ -890,27 +1018,23 @@ public class KanbanClient extends JFrame {
      * Find the column name for a task by its ID
      */
     private String getColumnNameForTask(String taskId) {
-        for (Map.Entry<String, Map<String, TaskCard>> entry : taskCards.entrySet()) {
-            if (entry.getValue().containsKey(taskId)) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return taskColumns.get(taskId);
     }
     
     /**
-     * Transfer handler for drag and drop of tasks
+     * Transfer handler for dragging tasks between column lists
      */
     private class TaskTransferHandler extends TransferHandler {
-        private final String id;
+        private final String columnName;
         
-        public TaskTransferHandler(String id) {
-            this.id = id;
+        public TaskTransferHandler(String columnName) {
+            this.columnName = columnName;
         }
         
         @Override
         protected Transferable createTransferable(JComponent c) {
-            return new StringSelection(id);
+            Object selected = ((JList<?>) c).getSelectedValue();
+            return selected instanceof TaskData ? new StringSelection(((TaskData) selected).getId()) : null;
         }
         
         @Override
@@ -932,96 +1056,21 @@ public class KanbanClient extends JFrame {
             try {
                 String taskId = (String) support.getTransferable().getTransferData(DataFlavor.stringFlavor);
                 
-                // Find the source column
-                String sourceColumn = null;
-                for (Map.Entry<String, Map<String, TaskCard>> entry : taskCards.entrySet()) {
-                    if (entry.getValue().containsKey(taskId)) {
-                        sourceColumn = entry.getKey();
-                        break;
-                    }
-                }
-                
-                // If this is a column ID, it's a drop target
-                if (columns.stream().anyMatch(col -> col.getName().equals(id))) {
-                    // Move the task to this column
-                    if (sourceColumn != null && !sourceColumn.equals(id)) {
-                        sendMessage("MOVE_TASK|" + taskId + "|" + sourceColumn + "|" + id);
-                        return true;
-                    }
+                // Move the task to this column if it came from another one
+                String sourceColumn = taskColumns.get(taskId);
+                if (sourceColumn != null && !sourceColumn.equals(columnName)) {
+                    session.moveTask(taskId, sourceColumn, columnName);
+                    return true;
                 }
                 
                 return false;
             } catch (Exception e) {
-                e.printStackTrace();
+                log.warn("Could not drop task: " + e.getMessage());
                 return false;
             }
         }
     }
     
-    /**
-     * Data class for a Kanban column
-     */
-    private static class ColumnData {
-        private String name;
-        private List<TaskData> tasks;
-        
-        public ColumnData(String name) {
-            this.name = name;
-            this.tasks = new ArrayList<>();
-        }
-        
-        public String getName() {
-            return name;
-        }
-        
-        public List<TaskData> getTasks() {
-            return tasks;
-        }
-        
-        public void addTask(TaskData task) {
-            tasks.add(task);
-        }
-    }
-    
-    /**
-     * Data class for a task
-     */
-    private static class TaskData {
-        private String id;
-        private String title;
-        private String description;
-        private String assignee;
-        private String dueDate;
-        
-        public TaskData(String id, String title, String description, String assignee, String dueDate) {
-            this.id = id;
-            this.title = title;
-            this.description = description;
-            this.assignee = assignee;
-            this.dueDate = dueDate;
-        }
-        
-        public String getId() {
-            return id;
-        }
-        
-        public String getTitle() {
-            return title;
-        }
-        
-        public String getDescription() {
-            return description;
-        }
-        
-        public String getAssignee() {
-            return assignee;
-        }
-        
-        public String getDueDate() {
-            return dueDate;
-        }
-    }
-    
     /**
      * Main method to start the application
      */
@@ -1030,7 +1079,7 @@ public class KanbanClient extends JFrame {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception e) {
-            e.printStackTrace();
+            log.warn("Could not set look and feel: " + e.getMessage());
         }
         
         // Create and show the application
@@ -0,0 +1,55 @@
+package main.java.client;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Receives board, chat and connection events from a KanbanSession.
+ * Called on the session's network thread (or the thread that made a local edit),
+ * so implementations should hand work off rather than block.
+ */
+public interface KanbanListener {
+    /**
+     * The board changed, either on the server or through a local edit still waiting for the server
+     */
+    default void boardChanged(BoardModel board) {
+    }
+
+    default void chatMessage(String username, String message) {
+    }
+
+    /**
+     * A page of older chat messages, oldest first. nextCursor is 0 when there is nothing older.
+     */
+    default void chatHistory(List<ChatLine> messages, long nextCursor) {
+    }
+
+    default void userJoined(String username) {
+    }
+
+    default void userLeft(String username) {
+    }
+
+    default void connectionChanged(boolean online) {
+    }
+
+    /**
+     * The server's board counts changed: column:name, assignee:name, due:overdue, due:later and
+     * due:none task counts, and limit:column WIP limits. Missing keys count 0.
+     */
+    default void aggregatesChanged(Map<String, Integer> aggregates) {
+    }
+
+    /**
+     * A task became due today, or overdue if overdue is true. Sent once per change, at the start of the
+     * server's day, for open tasks in the columns and assignees this session subscribed to.
+     */
+    default void taskDue(String taskId, String title, String assignee, String dueDate, boolean overdue) {
+    }
+
+    /**
+     * The server rejected one of our edits, it has already been taken off the board
+     */
+    default void editRejected(String edit, String reason) {
+    }
+}
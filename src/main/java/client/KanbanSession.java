@@ -0,0 +1,814 @@
+package main.java.client;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Headless connection to the Kanban board server.
+ * Keeps an up-to-date board model, reconnects and catches up after a dropped connection,
+ * queues edits while offline and shows our own edits optimistically until the server answers.
+ * Edits return a future that completes with the board version once the server has applied them,
+ * or fails if the server rejects them. Used by the Swing client, and usable on its own for bots and tools.
+ * Board updates only carry description hashes; descriptions are fetched on demand and kept in a bounded cache.
+ */
+public class KanbanSession {
+    private static final Log log = Log.get(KanbanSession.class);
+
+    public static final int CHAT_HISTORY_PAGE_SIZE = 50;
+
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+    private static final long DETAIL_CACHE_CHARS = Long.getLong("kanban.detailCacheChars", 1 << 20);
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String boardName;
+    private final List<KanbanListener> listeners = new CopyOnWriteArrayList<>();
+
+    private Socket socket;
+    private PrintWriter out;
+    private BufferedReader in;
+    private volatile boolean closing;
+    private volatile boolean connected;
+    private boolean chatHistoryRequested;
+
+    // Subscription filter sent again after every reconnect, null for the whole board and chat
+    private volatile String subscription;
+    private volatile boolean filtered;
+
+    // Last received board kept on disk, and board edits made while offline waiting to be replayed
+    private final BoardCache boardCache;
+    private final List<String> offlineQueue = new ArrayList<>();
+
+    // Newest board model from the server, owned by the reader thread and sent back to the server when reconnecting
+    private volatile BoardModel latestModel = BoardModel.EMPTY;
+
+    // Server model with our unconfirmed edits applied on top
+    private volatile BoardModel board = BoardModel.EMPTY;
+
+    // Edits shown optimistically until the server confirms or rejects them, by client sequence number
+    private final Map<Long, String> pendingEdits = new LinkedHashMap<>();
+    private final Map<Long, CompletableFuture<Long>> editResults = new HashMap<>();
+    private long nextEditSeq = 1;
+
+    // Descriptions fetched so far, and the requests waiting for the server to answer, by task ID
+    private final TaskDetailCache detailCache = new TaskDetailCache(DETAIL_CACHE_CHARS);
+    private final Map<String, List<CompletableFuture<String>>> detailRequests = new HashMap<>();
+
+    // Board counts and WIP limits from the server, and the sequence number of the last update applied
+    private volatile Map<String, Integer> aggregates = Collections.emptyMap();
+    private long aggregatesSeq = -1;
+
+    // Chat history page being received
+    private final List<ChatLine> chatHistoryPage = new ArrayList<>();
+
+    // Archive searches waiting for the server to answer, in the order they were sent, and the results being received
+    private final Deque<CompletableFuture<List<ArchivedTask>>> archiveSearches = new ArrayDeque<>();
+    private final List<ArchivedTask> archiveResults = new ArrayList<>();
+
+    /**
+     * Create a session. cacheFile may be null to run without a local cache.
+     */
+    public KanbanSession(String host, int port, String username, File cacheFile) {
+        this(host, port, username, null, cacheFile);
+    }
+
+    /**
+     * Create a session for a named board in a sharded cluster, where host and port are the cluster router's.
+     * Every connect and reconnect goes through the router, so the session follows the board when it moves.
+     */
+    public KanbanSession(String host, int port, String username, String boardName, File cacheFile) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.boardName = boardName;
+        this.boardCache = cacheFile != null ? new BoardCache(cacheFile) : null;
+    }
+
+    public void addListener(KanbanListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(KanbanListener listener) {
+        listeners.remove(listener);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Get the board including our edits the server has not answered yet
+     */
+    public BoardModel getBoard() {
+        return board;
+    }
+
+    /**
+     * Get the server's board counts and WIP limits, see KanbanListener.aggregatesChanged
+     */
+    public Map<String, Integer> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * Get the board as last confirmed by the server
+     */
+    public BoardModel getServerBoard() {
+        return latestModel;
+    }
+
+    /**
+     * Load the cached board and connect to the server.
+     * If the server is down but a cached board was loaded, the session starts offline and keeps retrying.
+     * Throws if the server cannot be reached and there is no cached board to work with.
+     */
+    public void connect() throws IOException {
+        loadCachedBoard();
+
+        try {
+            openConnection();
+        } catch (IOException e) {
+            if (latestModel == BoardModel.EMPTY) {
+                throw e;
+            }
+
+            log.warn("Server unavailable, using cached board offline: " + e.getMessage());
+            fireConnectionChanged(false);
+        }
+
+        // Start a thread to listen for server messages
+        new Thread(this::listenForServerMessages, "kanban-session-" + username).start();
+    }
+
+    /**
+     * Save the cache and close the connection
+     */
+    public void close() {
+        closing = true;
+
+        // Write the cache synchronously, the process may be about to exit
+        if (boardCache != null) {
+            synchronized (offlineQueue) {
+                boardCache.saveNow(latestModel, offlineQueue);
+            }
+        }
+
+        try {
+            if (socket != null && !socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            log.warn("Error closing connection: " + e.getMessage());
+        }
+    }
+
+    public CompletableFuture<Long> addTask(String columnName, TaskData task) {
+        cacheDescription(task);
+        return sendEdit("ADD_TASK|" + columnName + "|" + task.getId() + "|" + task.getTitle() + "|"
+                + task.getDescription() + "|" + task.getAssignee() + "|" + task.getDueDate());
+    }
+
+    public CompletableFuture<Long> moveTask(String taskId, String fromColumn, String toColumn) {
+        return sendEdit("MOVE_TASK|" + taskId + "|" + fromColumn + "|" + toColumn);
+    }
+
+    public CompletableFuture<Long> updateTask(String columnName, TaskData task) {
+        cacheDescription(task);
+        return sendEdit("UPDATE_TASK|" + columnName + "|" + task.getId() + "|" + task.getTitle() + "|"
+                + task.getDescription() + "|" + task.getAssignee() + "|" + task.getDueDate());
+    }
+
+    public CompletableFuture<Long> deleteTask(String columnName, String taskId) {
+        return sendEdit("DELETE_TASK|" + columnName + "|" + taskId);
+    }
+
+    public CompletableFuture<Long> clearCompleted() {
+        return sendEdit("CLEAR_COMPLETED");
+    }
+
+    /**
+     * Put an archived task back on the board, in the column it was archived from
+     */
+    public CompletableFuture<Long> restoreTask(String taskId) {
+        return sendEdit("RESTORE_TASK|" + taskId);
+    }
+
+    /**
+     * Search the server's archive for tasks whose title, description or assignee contains the query,
+     * most recently archived first. The future fails if the connection is lost before the server answers.
+     */
+    public CompletableFuture<List<ArchivedTask>> searchArchive(String query, int limit) {
+        CompletableFuture<List<ArchivedTask>> result = new CompletableFuture<>();
+        synchronized (offlineQueue) {
+            if (connected) {
+                synchronized (archiveSearches) {
+                    archiveSearches.add(result);
+                }
+                // Format: ARCHIVE_SEARCH|limit|query
+                out.println("ARCHIVE_SEARCH|" + limit + "|" + query);
+                return result;
+            }
+        }
+        result.completeExceptionally(new IOException("Not connected to the server"));
+        return result;
+    }
+
+    public void sendChat(String message) {
+        sendMessage("CHAT_MESSAGE|" + message);
+    }
+
+    /**
+     * Ask for a page of chat messages older than cursor, 0 for the newest page
+     */
+    public void requestChatHistory(long cursor, int limit) {
+        sendMessage("CHAT_HISTORY|" + cursor + "|" + limit);
+    }
+
+    /**
+     * Ask the server for a full snapshot of the board
+     */
+    public void refresh() {
+        sendMessage("REFRESH");
+    }
+
+    /**
+     * Get a task's description, from the task itself or the cache if possible and from the server otherwise.
+     * The future fails if the task no longer exists or the connection is lost before the server answers.
+     */
+    public CompletableFuture<String> fetchDescription(TaskData task) {
+        if (task.hasDescription()) {
+            return CompletableFuture.completedFuture(task.getDescription());
+        }
+        if (task.getDescriptionHash().isEmpty()) {
+            return CompletableFuture.completedFuture("");
+        }
+        String cached = detailCache.get(task.getId(), task.getDescriptionHash());
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        synchronized (detailRequests) {
+            List<CompletableFuture<String>> waiting = detailRequests.computeIfAbsent(task.getId(), id -> new ArrayList<>());
+            waiting.add(result);
+            if (waiting.size() > 1) {
+                // Already asked for, all callers get the same answer
+                return result;
+            }
+        }
+
+        synchronized (offlineQueue) {
+            if (connected) {
+                // Format: GET_TASK|taskId
+                out.println("GET_TASK|" + task.getId());
+                return result;
+            }
+        }
+        completeDetailRequests(task.getId(), null, new IOException("Not connected to the server"));
+        return result;
+    }
+
+    /**
+     * Only receive changes to the given columns and to cards of the given assignees, and optionally no chat.
+     * Empty collections mean the whole board. With a filter, the board only holds the cards inside it:
+     * the server sends them when the filter is set, and adds or removes cards as they move into or out of it.
+     */
+    public void subscribe(Collection<String> columns, Collection<String> assignees, boolean chat) {
+        // Format: SUBSCRIBE|columns|assignees|chat
+        subscription = "SUBSCRIBE|" + String.join(",", columns) + "|" + String.join(",", assignees) + "|" + (chat ? "on" : "off");
+        filtered = !columns.isEmpty() || !assignees.isEmpty();
+        sendMessage(subscription);
+    }
+
+    /**
+     * Load the board and offline edits cached by the previous session, if any
+     */
+    private void loadCachedBoard() {
+        BoardCache.Entry cached = boardCache != null ? boardCache.load() : null;
+
+        if (cached != null) {
+            log.info("Loaded cached board at version " + cached.getModel().getVersion()
+                    + " with " + cached.getQueuedEdits().size() + " queued edits");
+
+            // Edits queued while offline stay visible until the server has processed them
+            synchronized (pendingEdits) {
+                for (String edit : cached.getQueuedEdits()) {
+                    int seqStart = edit.lastIndexOf('|');
+                    try {
+                        long seq = Long.parseLong(edit.substring(seqStart + 1));
+                        pendingEdits.put(seq, edit.substring(0, seqStart));
+                        nextEditSeq = Math.max(nextEditSeq, seq + 1);
+                    } catch (NumberFormatException e) {
+                        // Queued by an older client without sequence numbers, it is still replayed
+                    }
+                }
+            }
+            offlineQueue.addAll(cached.getQueuedEdits());
+            publishModel(cached.getModel());
+        }
+    }
+
+    /**
+     * Open a connection to the server and log in.
+     * The version of the board we already have is sent so the server only sends what changed since,
+     * then any edits queued while offline are replayed.
+     */
+    private void openConnection() throws IOException {
+        Socket newSocket = boardName != null ? connectThroughRouter() : new Socket(host, port);
+        socket = newSocket;
+        out = new PrintWriter(newSocket.getOutputStream(), true);
+        in = new BufferedReader(new InputStreamReader(newSocket.getInputStream()));
+
+        synchronized (offlineQueue) {
+            // Format: LOGIN|username|epoch|version
+            out.println("LOGIN|" + username + "|" + latestModel.getEpoch() + "|" + latestModel.getVersion());
+            if (subscription != null) {
+                out.println(subscription);
+            }
+
+            // Fetch the most recent chat messages so new joiners see the conversation
+            if (!chatHistoryRequested) {
+                out.println("CHAT_HISTORY|0|" + CHAT_HISTORY_PAGE_SIZE);
+                chatHistoryRequested = true;
+            }
+
+            if (!offlineQueue.isEmpty()) {
+                log.info("Replaying " + offlineQueue.size() + " edits made while offline");
+                for (String edit : offlineQueue) {
+                    out.println(edit);
+                }
+                offlineQueue.clear();
+                saveCache();
+            }
+            connected = true;
+        }
+        fireConnectionChanged(true);
+    }
+
+    /**
+     * Send a message to the server.
+     * While offline, board edits are queued for replay and everything else is dropped.
+     */
+    private void sendMessage(String message) {
+        synchronized (offlineQueue) {
+            if (connected) {
+                out.println(message);
+            } else if (isBoardEdit(message)) {
+                offlineQueue.add(message);
+                saveCache();
+            }
+        }
+    }
+
+    private static boolean isBoardEdit(String message) {
+        return message.startsWith("ADD_TASK|") || message.startsWith("MOVE_TASK|")
+                || message.startsWith("UPDATE_TASK|") || message.startsWith("DELETE_TASK|")
+                || message.startsWith("CLEAR_COMPLETED|") || message.startsWith("RESTORE_TASK|");
+    }
+
+    /**
+     * Send a board edit and show it right away.
+     * The edit is tagged with a client sequence number and kept on top of the server's board
+     * until the server answers with ACK or NACK, so a rejected edit simply disappears again.
+     */
+    private CompletableFuture<Long> sendEdit(String edit) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        long seq;
+        synchronized (pendingEdits) {
+            seq = nextEditSeq++;
+            pendingEdits.put(seq, edit);
+            editResults.put(seq, result);
+        }
+        sendMessage(edit + "|" + seq);
+        updateBoard();
+        return result;
+    }
+
+    /**
+     * Save the latest board and offline edits in the background
+     */
+    private void saveCache() {
+        if (boardCache != null) {
+            synchronized (offlineQueue) {
+                boardCache.saveAsync(latestModel, offlineQueue);
+            }
+        }
+    }
+
+    /**
+     * Ask the cluster router which server hosts our board and connect to it
+     */
+    private Socket connectThroughRouter() throws IOException {
+        String reply;
+        try (Socket router = new Socket(host, port);
+             BufferedReader routerIn = new BufferedReader(new InputStreamReader(router.getInputStream()))) {
+            // Format: ROUTE|board, answered REDIRECT|host|port or ERROR|reason
+            new PrintWriter(router.getOutputStream(), true).println("ROUTE|" + boardName);
+            reply = routerIn.readLine();
+        }
+
+        String[] redirect = reply != null ? reply.split("\\|") : new String[] {"ERROR", "router closed the connection"};
+        if (!redirect[0].equals("REDIRECT")) {
+            throw new IOException("Could not route to board " + boardName + ": " + redirect[redirect.length - 1]);
+        }
+        log.info("Board " + boardName + " is served by " + redirect[1] + ":" + redirect[2]);
+        return new Socket(redirect[1], Integer.parseInt(redirect[2]));
+    }
+
+    /**
+     * Listen for messages from the server, reconnecting whenever the connection drops
+     */
+    private void listenForServerMessages() {
+        while (!closing) {
+            if (connected) {
+                String error = "server closed the connection";
+                try {
+                    String message;
+                    while ((message = in.readLine()) != null) {
+                        handleServerMessage(message);
+                    }
+                } catch (IOException e) {
+                    error = e.getMessage();
+                }
+
+                synchronized (offlineQueue) {
+                    connected = false;
+                }
+                if (closing) {
+                    return;
+                }
+
+                // We cannot know whether unanswered edits reached the server, so drop them and let
+                // the catch-up after reconnecting show what was actually applied
+                List<CompletableFuture<Long>> unanswered;
+                synchronized (pendingEdits) {
+                    pendingEdits.clear();
+                    unanswered = new ArrayList<>(editResults.values());
+                    editResults.clear();
+                }
+                for (CompletableFuture<Long> result : unanswered) {
+                    result.completeExceptionally(new IOException("Connection lost before the server answered"));
+                }
+                List<String> unansweredDetails;
+                synchronized (detailRequests) {
+                    unansweredDetails = new ArrayList<>(detailRequests.keySet());
+                }
+                for (String taskId : unansweredDetails) {
+                    completeDetailRequests(taskId, null, new IOException("Connection lost before the server answered"));
+                }
+                List<CompletableFuture<List<ArchivedTask>>> unansweredSearches;
+                synchronized (archiveSearches) {
+                    unansweredSearches = new ArrayList<>(archiveSearches);
+                    archiveSearches.clear();
+                }
+                archiveResults.clear();
+                for (CompletableFuture<List<ArchivedTask>> search : unansweredSearches) {
+                    search.completeExceptionally(new IOException("Connection lost before the server answered"));
+                }
+                updateBoard();
+                log.warn("Connection to server lost: " + error);
+                fireConnectionChanged(false);
+            }
+
+            if (!reconnect()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Keep trying to reconnect to the server, backing off between attempts.
+     * Returns false if the session is closing.
+     */
+    private boolean reconnect() {
+        long delay = RECONNECT_DELAY_MS;
+        for (int attempt = 1; !closing; attempt++) {
+            try {
+                Thread.sleep(delay);
+                openConnection();
+                log.info("Reconnected to server at board version " + latestModel.getVersion());
+                return true;
+            } catch (IOException e) {
+                log.warn("Reconnect attempt " + attempt + " failed: " + e.getMessage());
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handle a message from the server on the reader thread
+     */
+    private void handleServerMessage(String message) {
+        log.debug(() -> "Received message: " + message);
+        String command = message.substring(0, Math.max(0, message.indexOf('|')));
+
+        if (message.equals("PING")) {
+            // Answer heartbeats right away so slow listeners do not get us reaped
+            sendMessage("PONG");
+            return;
+        }
+
+        switch (command) {
+            case "BOARD_UPDATE": {
+                // Format: BOARD_UPDATE|epoch|version|boardData (board data itself contains |)
+                String[] snapshot = message.split("\\|", 4);
+                long epoch = Long.parseLong(snapshot[1]);
+                long version = Long.parseLong(snapshot[2]);
+
+                // Ignore snapshots older than events we have already applied
+                if (epoch == latestModel.getEpoch() && version < latestModel.getVersion()) {
+                    return;
+                }
+                publishModel(BoardModel.parse(epoch, version, snapshot.length > 3 ? snapshot[3] : ""));
+                break;
+            }
+
+            case "BOARD_EVENT": {
+                // Format: BOARD_EVENT|epoch|version|event
+                String[] event = message.split("\\|", 4);
+                long epoch = Long.parseLong(event[1]);
+                long version = Long.parseLong(event[2]);
+
+                if (epoch == latestModel.getEpoch() && version <= latestModel.getVersion()) {
+                    return;
+                }
+                // With a subscription filter, gaps are the events we did not ask for
+                if (epoch != latestModel.getEpoch() || (!filtered && version != latestModel.getVersion() + 1)) {
+                    // We missed something, fall back to a full snapshot
+                    sendMessage("REFRESH");
+                    return;
+                }
+                publishModel(latestModel.apply(version, event[3]));
+                break;
+            }
+
+            case "ACK":
+            case "NACK": {
+                // Format: ACK|seq|version or NACK|seq|reason
+                String[] reply = message.split("\\|", 3);
+                long seq = Long.parseLong(reply[1]);
+                String edit;
+                CompletableFuture<Long> result;
+                synchronized (pendingEdits) {
+                    edit = pendingEdits.remove(seq);
+                    result = editResults.remove(seq);
+                }
+
+                // The board broadcast for an accepted edit arrives before its ACK, or is not sent to a filtered
+                // client when the edit is outside its filter, so either way the edit can now be taken off the optimistic view
+                updateBoard();
+                if (command.equals("ACK")) {
+                    if (result != null) {
+                        result.complete(Long.parseLong(reply[2]));
+                    }
+                } else {
+                    if (result != null) {
+                        result.completeExceptionally(new EditRejectedException(edit, reply[2]));
+                    }
+                    if (edit != null) {
+                        for (KanbanListener listener : listeners) {
+                            listener.editRejected(edit, reply[2]);
+                        }
+                    }
+                }
+                break;
+            }
+
+            default:
+                handleOtherMessage(message);
+                break;
+        }
+    }
+
+    /**
+     * Handle chat and presence messages
+     */
+    private void handleOtherMessage(String message) {
+        String[] parts = message.split("\\|");
+
+        switch (parts[0]) {
+            case "USER_JOINED":
+                for (KanbanListener listener : listeners) {
+                    listener.userJoined(parts[1]);
+                }
+                break;
+
+            case "USER_LEFT":
+                for (KanbanListener listener : listeners) {
+                    listener.userLeft(parts[1]);
+                }
+                break;
+
+            case "CHAT": {
+                // Format: CHAT|username|message (the message itself may contain |)
+                String[] chat = message.split("\\|", 3);
+                for (KanbanListener listener : listeners) {
+                    listener.chatMessage(chat[1], chat[2]);
+                }
+                break;
+            }
+
+            case "TASK": {
+                // Format: TASK|taskId|descriptionHash|description
+                String[] task = message.split("\\|", 4);
+                detailCache.put(task[1], task[2], task[3]);
+                completeDetailRequests(task[1], task[3], null);
+                break;
+            }
+
+            case "TASK_NOT_FOUND":
+                // Format: TASK_NOT_FOUND|taskId
+                completeDetailRequests(parts[1], null, new NoSuchElementException("Task " + parts[1] + " no longer exists"));
+                break;
+
+            case "AGGREGATES":
+            case "AGGREGATES_CHANGED": {
+                // Format: AGGREGATES|seq|key=count,... with all counts, or AGGREGATES_CHANGED|seq|key=count,...
+                // with the changed ones, a count of 0 meaning the key is gone
+                String[] update = message.split("\\|", 3);
+                long seq = Long.parseLong(update[1]);
+                boolean full = parts[0].equals("AGGREGATES");
+                if (!full && seq <= aggregatesSeq) {
+                    // Already included in the full counts we got when joining
+                    return;
+                }
+                aggregatesSeq = seq;
+
+                Map<String, Integer> updated = new TreeMap<>(full ? Collections.emptyMap() : aggregates);
+                if (update.length > 2 && !update[2].isEmpty()) {
+                    for (String entry : update[2].split(",")) {
+                        int separator = entry.lastIndexOf('=');
+                        int count = Integer.parseInt(entry.substring(separator + 1));
+                        if (count == 0) {
+                            updated.remove(entry.substring(0, separator));
+                        } else {
+                            updated.put(entry.substring(0, separator), count);
+                        }
+                    }
+                }
+                aggregates = Collections.unmodifiableMap(updated);
+                for (KanbanListener listener : listeners) {
+                    listener.aggregatesChanged(aggregates);
+                }
+                break;
+            }
+
+            case "TASK_DUE": {
+                // Format: TASK_DUE|state|columnName|taskId|dueDate|assignee|title with state due or overdue
+                String[] due = message.split("\\|", 7);
+                for (KanbanListener listener : listeners) {
+                    listener.taskDue(due[3], due[6], due[5], due[4], due[1].equals("overdue"));
+                }
+                break;
+            }
+
+            case "CHAT_HISTORY_ITEM": {
+                // Format: CHAT_HISTORY_ITEM|seq|username|message
+                String[] chat = message.split("\\|", 4);
+                chatHistoryPage.add(new ChatLine(Long.parseLong(chat[1]), chat[2], chat[3]));
+                break;
+            }
+
+            case "CHAT_HISTORY_END": {
+                // Format: CHAT_HISTORY_END|nextCursor
+                List<ChatLine> page = Collections.unmodifiableList(new ArrayList<>(chatHistoryPage));
+                chatHistoryPage.clear();
+                for (KanbanListener listener : listeners) {
+                    listener.chatHistory(page, Long.parseLong(parts[1]));
+                }
+                break;
+            }
+
+            case "ARCHIVED_TASK": {
+                // Format: ARCHIVED_TASK|taskId|columnName|archivedAt|assignee|dueDate|title
+                String[] task = message.split("\\|", 7);
+                archiveResults.add(new ArchivedTask(task[1], task[2], Long.parseLong(task[3]), task[4], task[5], task[6]));
+                break;
+            }
+
+            case "ARCHIVE_SEARCH_END": {
+                // Format: ARCHIVE_SEARCH_END|count, or -1 if the server could not read its archive
+                List<ArchivedTask> results = Collections.unmodifiableList(new ArrayList<>(archiveResults));
+                archiveResults.clear();
+                CompletableFuture<List<ArchivedTask>> search;
+                synchronized (archiveSearches) {
+                    search = archiveSearches.poll();
+                }
+                if (search != null) {
+                    if (parts[1].equals("-1")) {
+                        search.completeExceptionally(new IOException("The server could not search its archive"));
+                    } else {
+                        search.complete(results);
+                    }
+                }
+                break;
+            }
+
+            default:
+                log.warn("Unknown message from server: " + message);
+                break;
+        }
+    }
+
+    /**
+     * Remember the description of a task we are sending, so it is not fetched back after the server confirms it
+     */
+    private void cacheDescription(TaskData task) {
+        if (task.hasDescription() && !task.getDescription().isEmpty()) {
+            detailCache.put(task.getId(), task.getDescriptionHash(), task.getDescription());
+        }
+    }
+
+    /**
+     * Answer everyone waiting for a task's description, with the description or the error
+     */
+    private void completeDetailRequests(String taskId, String description, Exception error) {
+        List<CompletableFuture<String>> waiting;
+        synchronized (detailRequests) {
+            waiting = detailRequests.remove(taskId);
+        }
+        if (waiting == null) {
+            return;
+        }
+
+        for (CompletableFuture<String> result : waiting) {
+            if (error == null) {
+                result.complete(description);
+            } else {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+
+    /**
+     * Make a new server model the latest one
+     */
+    private void publishModel(BoardModel model) {
+        latestModel = model;
+        updateBoard();
+        saveCache();
+    }
+
+    /**
+     * Apply our unconfirmed edits on top of the latest server model and tell the listeners.
+     * Listeners are called under the lock so they always see boards in the order they were built.
+     */
+    private void updateBoard() {
+        synchronized (pendingEdits) {
+            BoardModel view = latestModel;
+            for (String edit : pendingEdits.values()) {
+                view = view.applyEdit(edit);
+            }
+            board = view;
+
+            for (KanbanListener listener : listeners) {
+                listener.boardChanged(view);
+            }
+        }
+    }
+
+    private void fireConnectionChanged(boolean online) {
+        for (KanbanListener listener : listeners) {
+            listener.connectionChanged(online);
+        }
+    }
+
+    /**
+     * Thrown through an edit's future when the server rejects the edit
+     */
+    public static class EditRejectedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final String edit;
+        private final String reason;
+
+        public EditRejectedException(String edit, String reason) {
+            super("Edit rejected by server: " + reason);
+            this.edit = edit;
+            this.reason = reason;
+        }
+
+        public String getEdit() {
+            return edit;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package main.java.client;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Renders a task as a card inside a column list.
+ * A single renderer instance is shared by every column and re-stamped for each visible
+ * cell, so the cost of a column no longer grows with the number of components per task.
+ */
+public class TaskCardRenderer extends JPanel implements ListCellRenderer<TaskData> {
+    private static final long serialVersionUID = 1L;
+
+    public static final int CARD_WIDTH = 200;
+    public static final int CARD_HEIGHT = 100;
+
+    private static final Color SELECTED_BACKGROUND = new Color(220, 232, 250);
+
+    private final JLabel titleLabel = new JLabel();
+    private final JLabel assigneeLabel = new JLabel();
+
+    public TaskCardRenderer() {
+        setLayout(new BorderLayout(5, 5));
+        setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createEmptyBorder(5, 5, 5, 5),
+            BorderFactory.createLineBorder(Color.BLACK)
+        ));
+
+        titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD));
+        add(titleLabel, BorderLayout.NORTH);
+        add(assigneeLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Configure a list to draw its tasks with this renderer at the fixed card size.
+     * Fixed cell sizes let the list skip measuring every card, so only visible cells are ever rendered.
+     */
+    public void install(JList<TaskData> list) {
+        list.setCellRenderer(this);
+        list.setFixedCellWidth(CARD_WIDTH);
+        list.setFixedCellHeight(CARD_HEIGHT);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends TaskData> list, TaskData task, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        titleLabel.setText(task.getTitle());
+        assigneeLabel.setText("Assignee: " + task.getAssignee());
+        setBackground(isSelected ? SELECTED_BACKGROUND : Color.WHITE);
+        return this;
+    }
+}
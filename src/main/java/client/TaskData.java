@@ -0,0 +1,116 @@
+package main.java.client;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+
+/**
+ * Immutable data class for a task on the client side.
+ * Tasks received from the server only carry a hash of their description; the text itself is
+ * fetched when needed, see KanbanSession.fetchDescription.
+ */
+public class TaskData {
+    private final String id;
+    private final String title;
+    private final String description;
+    private final String descriptionHash;
+    private final String assignee;
+    private final String dueDate;
+    
+    public TaskData(String id, String title, String description, String assignee, String dueDate) {
+        this(id, title, description, hashDescription(description), assignee, dueDate);
+    }
+    
+    private TaskData(String id, String title, String description, String descriptionHash, String assignee, String dueDate) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.descriptionHash = descriptionHash;
+        this.assignee = assignee;
+        this.dueDate = dueDate;
+    }
+    
+    /**
+     * Create a task as sent by the server, with the hash of its description but not the text
+     */
+    public static TaskData summary(String id, String title, String descriptionHash, String assignee, String dueDate) {
+        return new TaskData(id, title, null, descriptionHash, assignee, dueDate);
+    }
+    
+    /**
+     * Get a copy of this task with its description filled in
+     */
+    public TaskData withDescription(String description) {
+        return new TaskData(id, title, description, assignee, dueDate);
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    /**
+     * Get the description, or null if it has not been fetched from the server
+     */
+    public String getDescription() {
+        return description;
+    }
+    
+    public boolean hasDescription() {
+        return description != null;
+    }
+    
+    public String getDescriptionHash() {
+        return descriptionHash;
+    }
+    
+    public String getAssignee() {
+        return assignee;
+    }
+    
+    public String getDueDate() {
+        return dueDate;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TaskData)) return false;
+        TaskData other = (TaskData) o;
+        return Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(description, other.description)
+                && Objects.equals(descriptionHash, other.descriptionHash)
+                && Objects.equals(assignee, other.assignee)
+                && Objects.equals(dueDate, other.dueDate);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, description, descriptionHash, assignee, dueDate);
+    }
+    
+    /**
+     * Short hash identifying a description, empty for an empty description.
+     * Must match Task.hashDescription on the server.
+     */
+    static String hashDescription(String description) {
+        if (description == null || description.isEmpty()) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return Long.toHexString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package main.java.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least recently used cache of task descriptions fetched from the server, bounded by their total length.
+ * Entries are keyed by task and description hash, so a description that has since been edited is
+ * simply not found rather than shown stale.
+ */
+public class TaskDetailCache {
+    private final long maxChars;
+    private final LinkedHashMap<String, String> descriptions = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars;
+
+    public TaskDetailCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Get a cached description, or null if it is not cached
+     */
+    public synchronized String get(String taskId, String descriptionHash) {
+        return descriptions.get(key(taskId, descriptionHash));
+    }
+
+    public synchronized void put(String taskId, String descriptionHash, String description) {
+        String previous = descriptions.put(key(taskId, descriptionHash), description);
+        totalChars += description.length() - (previous != null ? previous.length() : 0);
+
+        // Evict the least recently used descriptions until we fit again
+        Iterator<String> eldest = descriptions.values().iterator();
+        while (totalChars > maxChars && eldest.hasNext()) {
+            totalChars -= eldest.next().length();
+            eldest.remove();
+        }
+    }
+
+    public synchronized int size() {
+        return descriptions.size();
+    }
+
+    private static String key(String taskId, String descriptionHash) {
+        return taskId + "|" + descriptionHash;
+    }
+}
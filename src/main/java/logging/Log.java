@@ -0,0 +1,184 @@
+package main.java.logging;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Small asynchronous leveled logger shared by the server and the client.
+ * Log calls only put a record into a bounded ring buffer; a daemon writer thread formats the
+ * records and prints them in batches, so a slow console never holds up a request. When the
+ * buffer is full the record is dropped and counted instead of blocking the caller.
+ * The level is set with -Dkanban.logLevel=DEBUG|INFO|WARN|ERROR|OFF (default INFO) and the
+ * buffer size with -Dkanban.logBuffer (default 8192 records).
+ */
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Level LEVEL = parseLevel(System.getProperty("kanban.logLevel", "INFO"));
+    private static final BlockingQueue<LogRecord> buffer =
+            new ArrayBlockingQueue<>(Integer.getInteger("kanban.logBuffer", 8192));
+    private static final AtomicLong dropped = new AtomicLong();
+    private static final DateTimeFormatter TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    static {
+        Thread writer = new Thread(Log::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+    }
+
+    private final String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get a logger named after the given class
+     */
+    public static Log get(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    public boolean isDebugEnabled() {
+        return LEVEL == Level.DEBUG;
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    /**
+     * Log at debug level, building the message only if debug logging is enabled.
+     * Use this for anything that dumps a payload, so it costs nothing at the default level.
+     */
+    public void debug(Supplier<String> message) {
+        if (isDebugEnabled()) {
+            log(Level.DEBUG, message.get(), null);
+        }
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void warn(String message, Throwable error) {
+        log(Level.WARN, message, error);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    /**
+     * Number of records dropped so far because the buffer was full
+     */
+    public static long droppedCount() {
+        return dropped.get();
+    }
+
+    private void log(Level level, String message, Throwable error) {
+        if (level.compareTo(LEVEL) < 0) {
+            return;
+        }
+        LogRecord record = new LogRecord(System.currentTimeMillis(), level, name,
+                Thread.currentThread().getName(), message, error);
+        if (!buffer.offer(record)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static void writeLoop() {
+        List<LogRecord> batch = new ArrayList<>();
+        long reportedDropped = 0;
+        while (true) {
+            try {
+                batch.add(buffer.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            buffer.drainTo(batch);
+            write(batch);
+            batch.clear();
+
+            long droppedNow = dropped.get();
+            if (droppedNow != reportedDropped) {
+                System.err.println(format(new LogRecord(System.currentTimeMillis(), Level.WARN, "Log",
+                        "log-writer", (droppedNow - reportedDropped) + " log messages dropped, buffer full", null)));
+                reportedDropped = droppedNow;
+            }
+        }
+    }
+
+    /**
+     * Write out anything still buffered, called on shutdown so the last messages are not lost
+     */
+    private static void flush() {
+        List<LogRecord> batch = new ArrayList<>();
+        buffer.drainTo(batch);
+        write(batch);
+    }
+
+    private static synchronized void write(List<LogRecord> batch) {
+        for (LogRecord record : batch) {
+            PrintStream out = record.level.compareTo(Level.WARN) >= 0 ? System.err : System.out;
+            out.println(format(record));
+            if (record.error != null) {
+                record.error.printStackTrace(out);
+            }
+        }
+        System.out.flush();
+        System.err.flush();
+    }
+
+    private static String format(LogRecord record) {
+        return TIMESTAMP.format(Instant.ofEpochMilli(record.timestamp)) + " "
+                + String.format("%-5s", record.level) + " [" + record.thread + "] "
+                + record.logger + " - " + record.message;
+    }
+
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown kanban.logLevel " + value + ", using INFO");
+            return Level.INFO;
+        }
+    }
+
+    private static class LogRecord {
+        private final long timestamp;
+        private final Level level;
+        private final String logger;
+        private final String thread;
+        private final String message;
+        private final Throwable error;
+
+        LogRecord(long timestamp, Level level, String logger, String thread, String message, Throwable error) {
+            this.timestamp = timestamp;
+            this.level = level;
+            this.logger = logger;
+            this.thread = thread;
+            this.message = message;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package main.java.server;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Live counts over the board, kept up to date by every mutation instead of walking the board.
+ * Counts tasks per column, and open tasks (those not in Done or Completed) per assignee and by
+ * due date state: overdue, due later, or without a due date. Also holds the per-column WIP limits.
+ * Changed counts are collected until drained, so clients can be sent only what changed.
+ * Not thread-safe; callers hold the board lock.
+ */
+public class BoardAggregates {
+    public static final String OVERDUE = "due:overdue";
+    public static final String DUE_LATER = "due:later";
+    public static final String NO_DUE_DATE = "due:none";
+
+    private final Map<String, Integer> wipLimits;
+    private final Map<String, Integer> counts = new HashMap<>();
+
+    // Open tasks due today or later by due day, moved to overdue as the days pass
+    private final TreeMap<Long, Integer> dueLaterByDay = new TreeMap<>();
+    private long today = LocalDate.now().toEpochDay();
+
+    // Counts changed since the last drain, with their new values
+    private final Map<String, Integer> changed = new LinkedHashMap<>();
+
+    public BoardAggregates(Map<String, Integer> wipLimits) {
+        this.wipLimits = new LinkedHashMap<>(wipLimits);
+    }
+
+    /**
+     * Parse WIP limits given as column:limit,column:limit, e.g. "In Progress:5,Review:3"
+     */
+    public static Map<String, Integer> parseLimits(String limits) {
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        for (String limit : limits.split(",")) {
+            int separator = limit.lastIndexOf(':');
+            if (separator > 0) {
+                parsed.put(limit.substring(0, separator).trim(), Integer.parseInt(limit.substring(separator + 1).trim()));
+            }
+        }
+        return parsed;
+    }
+
+    public static String column(String columnName) {
+        return "column:" + columnName;
+    }
+
+    public static String assignee(String assignee) {
+        return "assignee:" + assignee;
+    }
+
+    public static String limit(String columnName) {
+        return "limit:" + columnName;
+    }
+
+    /**
+     * Whether a task in this column counts as finished, the same columns CLEAR_COMPLETED empties
+     */
+    public static boolean isFinished(String columnName) {
+        return columnName.equals("Done") || columnName.equals("Completed");
+    }
+
+    /**
+     * Check whether one more task would take a column over its WIP limit
+     */
+    public boolean isAtLimit(String columnName) {
+        Integer limit = wipLimits.get(columnName);
+        return limit != null && counts.getOrDefault(column(columnName), 0) >= limit;
+    }
+
+    public void add(String columnName, Task task) {
+        update(columnName, task, 1);
+    }
+
+    public void remove(String columnName, Task task) {
+        update(columnName, task, -1);
+    }
+
+    public void move(Task task, String fromColumn, String toColumn) {
+        remove(fromColumn, task);
+        add(toColumn, task);
+    }
+
+    /**
+     * Count a whole board from scratch, e.g. after loading it. Every count is reported as changed.
+     */
+    public void rebuild(List<KanbanColumn> board) {
+        for (String key : counts.keySet()) {
+            changed.put(key, 0);
+        }
+        counts.clear();
+        dueLaterByDay.clear();
+        today = LocalDate.now().toEpochDay();
+
+        for (KanbanColumn column : board) {
+            for (Task task : column.getTasks()) {
+                add(column.getName(), task);
+            }
+        }
+    }
+
+    /**
+     * Move tasks whose due date has passed into the overdue count.
+     * Returns true if any moved. Each due date moves once, so this is cheap to call often.
+     */
+    public boolean rollOver(LocalDate now) {
+        if (now.toEpochDay() <= today) {
+            return false;
+        }
+        today = now.toEpochDay();
+
+        int becameOverdue = 0;
+        SortedMap<Long, Integer> passed = dueLaterByDay.headMap(today);
+        for (int count : passed.values()) {
+            becameOverdue += count;
+        }
+        passed.clear();
+
+        if (becameOverdue == 0) {
+            return false;
+        }
+        change(DUE_LATER, -becameOverdue);
+        change(OVERDUE, becameOverdue);
+        return true;
+    }
+
+    /**
+     * Get every count and limit
+     */
+    public Map<String, Integer> all() {
+        Map<String, Integer> all = new TreeMap<>(counts);
+        for (Map.Entry<String, Integer> limit : wipLimits.entrySet()) {
+            all.put(limit(limit.getKey()), limit.getValue());
+        }
+        return all;
+    }
+
+    /**
+     * Get the counts changed since the last call, with 0 for counts that are gone
+     */
+    public Map<String, Integer> drainChanges() {
+        Map<String, Integer> drained = new LinkedHashMap<>(changed);
+        changed.clear();
+        return drained;
+    }
+
+    private void update(String columnName, Task task, int delta) {
+        rollOver(LocalDate.now());
+        change(column(columnName), delta);
+        if (isFinished(columnName)) {
+            return;
+        }
+
+        if (!task.getAssignee().isEmpty()) {
+            change(assignee(task.getAssignee()), delta);
+        }
+
+        long due = task.getDueDay();
+        if (due == Task.NO_DUE_DAY) {
+            change(NO_DUE_DATE, delta);
+        } else if (due < today) {
+            change(OVERDUE, delta);
+        } else {
+            dueLaterByDay.merge(due, delta, (a, b) -> a + b == 0 ? null : a + b);
+            change(DUE_LATER, delta);
+        }
+    }
+
+    private void change(String key, int delta) {
+        int value = counts.merge(key, delta, Integer::sum);
+        if (value == 0) {
+            counts.remove(key);
+        }
+        changed.put(key, value);
+    }
+}
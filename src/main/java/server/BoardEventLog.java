@@ -0,0 +1,70 @@
+package main.java.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded ring buffer holding the most recent board events.
+ * Each event is stored under the board version it produced, so a reconnecting
+ * client can be sent only the events it missed instead of the whole board.
+ */
+public class BoardEventLog {
+    private final String[] events;
+    private long lastVersion;
+    private int size;
+
+    public BoardEventLog(int capacity) {
+        this.events = new String[capacity];
+    }
+
+    /**
+     * Record the event that produced the given version.
+     * Versions must be appended in order without gaps.
+     */
+    public synchronized void append(long version, String event) {
+        events[slot(version)] = event;
+        lastVersion = version;
+        if (size < events.length) {
+            size++;
+        }
+    }
+
+    /**
+     * Get the events after the given version, oldest first.
+     * Returns null if the ring no longer covers that version and a full snapshot is needed.
+     */
+    public synchronized List<String> eventsSince(long version) {
+        if (!covers(version)) {
+            return null;
+        }
+
+        List<String> missed = new ArrayList<>((int) (lastVersion - version));
+        for (long v = version + 1; v <= lastVersion; v++) {
+            missed.add(events[slot(v)]);
+        }
+        return missed;
+    }
+
+    /**
+     * Check whether every event after the given version is still in the ring
+     */
+    public synchronized boolean covers(long version) {
+        return version <= lastVersion && version >= lastVersion - size;
+    }
+
+    /**
+     * Forget all events and continue from the given version, e.g. after loading a snapshot
+     */
+    public synchronized void reset(long version) {
+        lastVersion = version;
+        size = 0;
+    }
+
+    public synchronized long getLastVersion() {
+        return lastVersion;
+    }
+
+    private int slot(long version) {
+        return (int) (version % events.length);
+    }
+}
@@ -0,0 +1,183 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Read-only HTTP endpoint serving the board as JSON for dashboards and wallboards.
+ * The ETag is the server epoch and board version, and the encoded body is cached until the next
+ * mutation or new epoch, so polling an unchanged board costs a version check and a write.
+ */
+public class BoardHttpEndpoint {
+    private static final Log log = Log.get(BoardHttpEndpoint.class);
+
+    private static final int HANDLER_THREADS = 4;
+
+    private volatile CachedBody cached;
+
+    /**
+     * Start listening on the given port, serving the board at /board
+     */
+    public void start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/board", this::handle);
+        server.setExecutor(Executors.newFixedThreadPool(HANDLER_THREADS));
+        server.start();
+        log.info("Board HTTP endpoint started on port " + port);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            // Answer unchanged polls without touching the board
+            String currentTag = etag(KanbanServer.serverEpoch(), KanbanServer.currentVersion());
+            if (currentTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.getResponseHeaders().set("ETag", currentTag);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            CachedBody body = currentBody();
+            exchange.getResponseHeaders().set("ETag", etag(body.epoch, body.version));
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, body.bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body.bytes);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Get the encoded board, re-encoding only if the board changed since it was cached.
+     * Versions restart under a new epoch, e.g. after a replicated snapshot or a promotion, so both must match.
+     */
+    private CachedBody currentBody() {
+        CachedBody body = cached;
+        if (isCurrent(body)) {
+            return body;
+        }
+
+        synchronized (this) {
+            body = cached;
+            if (!isCurrent(body)) {
+                body = KanbanServer.readBoard(BoardHttpEndpoint::encode);
+                cached = body;
+            }
+            return body;
+        }
+    }
+
+    private static boolean isCurrent(CachedBody body) {
+        return body != null && body.version == KanbanServer.currentVersion() && body.epoch == KanbanServer.serverEpoch();
+    }
+
+    private static String etag(long epoch, long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    /**
+     * Encode the board as JSON. Called while holding the board lock.
+     */
+    private static CachedBody encode(List<KanbanColumn> board) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"version\":").append(KanbanServer.currentVersion()).append(",\"columns\":[");
+
+        for (int i = 0; i < board.size(); i++) {
+            KanbanColumn column = board.get(i);
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"name\":");
+            appendString(sb, column.getName());
+            sb.append(",\"tasks\":[");
+
+            List<Task> tasks = column.getTasks();
+            for (int j = 0; j < tasks.size(); j++) {
+                Task task = tasks.get(j);
+                if (j > 0) {
+                    sb.append(',');
+                }
+                sb.append("{\"id\":");
+                appendString(sb, task.getId());
+                sb.append(",\"title\":");
+                appendString(sb, task.getTitle());
+                sb.append(",\"description\":");
+                appendString(sb, task.getDescription());
+                sb.append(",\"assignee\":");
+                appendString(sb, task.getAssignee());
+                sb.append(",\"dueDate\":");
+                appendString(sb, task.getDueDate());
+                sb.append('}');
+            }
+            sb.append("]}");
+        }
+        sb.append("]}");
+
+        return new CachedBody(KanbanServer.serverEpoch(), KanbanServer.currentVersion(), sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * Encoded board body together with the epoch and version it was encoded at
+     */
+    private static class CachedBody {
+        private final long epoch;
+        private final long version;
+        private final byte[] bytes;
+
+        CachedBody(long epoch, long version, byte[] bytes) {
+            this.epoch = epoch;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Chat subsystem for the Kanban board.
+ * Chat messages are fanned out from their own low-priority dispatcher thread so that
+ * chat traffic never holds up board updates, and the most recent messages are kept
+ * in a bounded history ring that clients can page through. Each sender may only have
+ * a limited number of messages waiting, so one flooding client cannot fill the queue
+ * for everyone else.
+ */
+public class ChatService {
+    private static final Log log = Log.get(ChatService.class);
+
+    private static final int DISPATCH_QUEUE_CAPACITY = 10000;
+    private static final int SENDER_QUEUE_LIMIT = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final ChatMessage[] history;
+    private long lastSeq;
+
+    private final BlockingQueue<ChatMessage> dispatchQueue = new ArrayBlockingQueue<>(DISPATCH_QUEUE_CAPACITY);
+    private final Map<String, Integer> queuedBySender = new ConcurrentHashMap<>();
+    private final Consumer<String> fanOut;
+
+    /**
+     * @param historyCapacity number of messages kept for CHAT_HISTORY requests
+     * @param fanOut delivers a chat line to every connected client
+     */
+    public ChatService(int historyCapacity, Consumer<String> fanOut) {
+        this.history = new ChatMessage[historyCapacity];
+        this.fanOut = fanOut;
+
+        Thread dispatcher = new Thread(this::dispatchLoop, "chat-dispatcher");
+        dispatcher.setPriority(Thread.MIN_PRIORITY);
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Queue a chat message for delivery without blocking the sender.
+     * Returns false, dropping the message, if the sender already has too many messages waiting
+     * or the dispatcher is backed up.
+     */
+    public boolean post(String username, String text) {
+        if (queuedBySender.merge(username, 1, Integer::sum) > SENDER_QUEUE_LIMIT
+                || !dispatchQueue.offer(new ChatMessage(username, text))) {
+            dequeued(username);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get a page of chat history older than the cursor, oldest first.
+     * A cursor of 0 starts from the newest message.
+     */
+    public synchronized List<ChatMessage> page(long cursor, int limit) {
+        long oldest = Math.max(1, lastSeq - history.length + 1);
+        long end = cursor <= 0 || cursor > lastSeq ? lastSeq : cursor - 1;
+        long start = Math.max(oldest, end - Math.min(limit, MAX_PAGE_SIZE) + 1);
+
+        List<ChatMessage> page = new ArrayList<>();
+        for (long seq = start; seq <= end; seq++) {
+            page.add(history[slot(seq)]);
+        }
+        return page;
+    }
+
+    /**
+     * Store and fan out queued messages, one at a time
+     */
+    private void dispatchLoop() {
+        while (true) {
+            try {
+                ChatMessage message = dispatchQueue.take();
+                dequeued(message.getUsername());
+                record(message);
+                fanOut.accept("CHAT|" + message.getUsername() + "|" + message.getText());
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Error dispatching chat message: " + e.getMessage());
+            }
+        }
+    }
+
+    private void dequeued(String username) {
+        queuedBySender.computeIfPresent(username, (sender, queued) -> queued == 1 ? null : queued - 1);
+    }
+
+    private synchronized void record(ChatMessage message) {
+        message.seq = ++lastSeq;
+        history[slot(message.seq)] = message;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % history.length);
+    }
+
+    /**
+     * A chat message with its position in the history
+     */
+    public static class ChatMessage {
+        private long seq;
+        private final String username;
+        private final String text;
+
+        ChatMessage(String username, String text) {
+            this.username = username;
+            this.text = text;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One node of a sharded cluster, hosting the boards the ClusterRouter assigns to it.
+ * The server keeps a single board per JVM, so the node runs each board as its own KanbanServer
+ * child process on a free port, with the board file kept in a board directory shared by the
+ * cluster. The router opens boards on the node and releases them when they move to another node.
+ * Start with e.g. -Dkanban.node.port=6001 -Dkanban.boardDir=boards.
+ */
+public class ClusterNode {
+    private static final Log log = Log.get(ClusterNode.class);
+
+    private static final int NODE_PORT = Integer.getInteger("kanban.node.port", 6001);
+    private static final File BOARD_DIR = new File(System.getProperty("kanban.boardDir", "boards"));
+    private static final long START_TIMEOUT_SECONDS = 30;
+    private static final long READY_POLL_MS = 100;
+
+    private static final Map<String, BoardProcess> boards = new ConcurrentHashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        BOARD_DIR.mkdirs();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (String board : boards.keySet()) {
+                release(board);
+            }
+        }, "node-shutdown"));
+
+        ServerSocket serverSocket = new ServerSocket(NODE_PORT);
+        log.info("Cluster node listening on port " + NODE_PORT + ", boards in " + BOARD_DIR.getAbsolutePath());
+        while (true) {
+            Socket socket = serverSocket.accept();
+            Thread handler = new Thread(() -> handleControl(socket), "node-control");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /**
+     * Answer one control request from the router.
+     * Format: OPEN|board -> OPENED|board|port, RELEASE|board -> RELEASED|board,
+     * BOARDS -> BOARD|name|port lines followed by END. Failures are answered ERROR|reason.
+     */
+    private static void handleControl(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            String request = in.readLine();
+            if (request == null) {
+                return;
+            }
+
+            String[] parts = request.split("\\|");
+            try {
+                switch (parts[0]) {
+                    case "OPEN":
+                        out.println("OPENED|" + parts[1] + "|" + open(parts[1]));
+                        break;
+
+                    case "RELEASE":
+                        release(parts[1]);
+                        out.println("RELEASED|" + parts[1]);
+                        break;
+
+                    case "BOARDS":
+                        for (BoardProcess board : boards.values()) {
+                            out.println("BOARD|" + board.name + "|" + board.port);
+                        }
+                        out.println("END");
+                        break;
+
+                    default:
+                        out.println("ERROR|Unknown command " + parts[0]);
+                        break;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Control request " + request + " failed: " + e.getMessage());
+                out.println("ERROR|" + e.getMessage());
+            }
+        } catch (IOException e) {
+            log.warn("Control connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the port of a board's server, starting the server first if it is not running
+     */
+    private static int open(String board) throws IOException {
+        if (!ClusterRouter.isValidBoardName(board)) {
+            throw new IOException("Invalid board name " + board);
+        }
+
+        BoardProcess process = boards.compute(board, (name, existing) ->
+                existing != null && existing.process.isAlive() ? existing : new BoardProcess(name));
+        try {
+            process.started.get(START_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return process.port;
+        } catch (Exception e) {
+            boards.remove(board, process);
+            process.stop();
+            throw new IOException("Board " + board + " did not start: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop a board's server. It saves the board on the way down, so another node can open it next.
+     */
+    private static void release(String board) {
+        BoardProcess process = boards.remove(board);
+        if (process != null) {
+            process.stop();
+            log.info("Released board " + board);
+        }
+    }
+
+    /**
+     * A KanbanServer child process serving one board
+     */
+    private static class BoardProcess {
+        private final String name;
+        private final int port;
+        private final Process process;
+        private final CompletableFuture<Void> started = new CompletableFuture<>();
+
+        BoardProcess(String name) {
+            this.name = name;
+            try {
+                this.port = freePort();
+                String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                ProcessBuilder builder = new ProcessBuilder(java,
+                        "-cp", System.getProperty("java.class.path"),
+                        "-Dkanban.port=" + port,
+                        "-Dkanban.boardFile=" + new File(BOARD_DIR, name + ".dat").getPath(),
+                        "-Dkanban.logLevel=" + (log.isDebugEnabled() ? "DEBUG" : "INFO"),
+                        KanbanServer.class.getName());
+                builder.redirectErrorStream(true);
+                this.process = builder.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            Thread output = new Thread(this::copyOutput, "board-" + name + "-output");
+            output.setDaemon(true);
+            output.start();
+            Thread ready = new Thread(this::awaitPort, "board-" + name + "-ready");
+            ready.setDaemon(true);
+            ready.start();
+            log.info("Starting board " + name + " on port " + port);
+        }
+
+        /**
+         * Copy the child's log to BOARD_DIR/name.log
+         */
+        private void copyOutput() {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()));
+                 PrintWriter logFile = new PrintWriter(new FileWriter(new File(BOARD_DIR, name + ".log"), true), true)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    logFile.println(line);
+                }
+            } catch (IOException e) {
+                log.warn("Lost output of board " + name + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * Notice when the child accepts connections. The server only binds its port once the board is loaded.
+         */
+        private void awaitPort() {
+            while (!started.isDone()) {
+                if (!process.isAlive()) {
+                    started.completeExceptionally(new IOException("server exited"));
+                    return;
+                }
+                try (Socket probe = new Socket()) {
+                    probe.connect(new InetSocketAddress("localhost", port), (int) READY_POLL_MS);
+                    started.complete(null);
+                    return;
+                } catch (IOException e) {
+                    // Not listening yet
+                }
+                try {
+                    Thread.sleep(READY_POLL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void stop() {
+            process.destroy();
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static int freePort() throws IOException {
+            try (ServerSocket probe = new ServerSocket(0)) {
+                return probe.getLocalPort();
+            }
+        }
+    }
+}
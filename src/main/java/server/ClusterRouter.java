@@ -0,0 +1,244 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Entry point of a sharded cluster: assigns boards to ClusterNodes with a consistent hash ring
+ * and redirects each client to the server of the board it asks for. Clients reconnect through the
+ * router, so when nodes are added or removed the moved boards are released on their old node and
+ * reopened on the new owner on the next connect, which waits for the release to finish.
+ * Start with e.g. -Dkanban.port=5000 -Dkanban.cluster.nodes=localhost:6001,localhost:6002.
+ */
+public class ClusterRouter {
+    private static final Log log = Log.get(ClusterRouter.class);
+
+    private static final int PORT = Integer.getInteger("kanban.port", 5000);
+    private static final Pattern BOARD_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // Guarded by the class lock: the ring, which node each open board was placed on,
+    // and how many opens and releases of each board are under way
+    private static final ConsistentHashRing ring = new ConsistentHashRing();
+    private static final Map<String, String> placements = new HashMap<>();
+    private static final Map<String, Integer> busy = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        for (String node : System.getProperty("kanban.cluster.nodes", "localhost:6001").split(",")) {
+            ring.addNode(node.trim());
+        }
+
+        ServerSocket serverSocket = new ServerSocket(PORT);
+        log.info("Cluster router started on port " + PORT + " with nodes " + ring.getNodes());
+        while (true) {
+            Socket socket = serverSocket.accept();
+            Thread handler = new Thread(() -> handle(socket), "router-client");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /**
+     * Board names become file names on the nodes, so only a safe set of characters is allowed
+     */
+    static boolean isValidBoardName(String board) {
+        return BOARD_NAME.matcher(board).matches();
+    }
+
+    /**
+     * Answer one request and close the connection.
+     * Format: ROUTE|board -> REDIRECT|host|port, ADD_NODE|host:port or REMOVE_NODE|host:port -> MOVED|count,
+     * NODES -> NODE|host:port|boardCount lines followed by END. Failures are answered ERROR|reason.
+     */
+    private static void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+             PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+            String request = in.readLine();
+            if (request == null) {
+                return;
+            }
+
+            String[] parts = request.split("\\|");
+            try {
+                switch (parts[0]) {
+                    case "ROUTE":
+                        out.println(route(parts[1]));
+                        break;
+
+                    case "ADD_NODE":
+                        out.println("MOVED|" + changeNodes(parts[1], true));
+                        break;
+
+                    case "REMOVE_NODE":
+                        out.println("MOVED|" + changeNodes(parts[1], false));
+                        break;
+
+                    case "NODES":
+                        for (Map.Entry<String, Integer> node : boardsPerNode().entrySet()) {
+                            out.println("NODE|" + node.getKey() + "|" + node.getValue());
+                        }
+                        out.println("END");
+                        break;
+
+                    default:
+                        out.println("ERROR|Unknown command " + parts[0]);
+                        break;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Request " + request + " failed: " + e.getMessage());
+                out.println("ERROR|" + e.getMessage());
+            }
+        } catch (IOException e) {
+            log.warn("Router connection failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Open a board on its owning node and build the redirect to it.
+     * The node is asked outside the lock since starting a board takes a while. The board is placed on the
+     * node first, so a ring change in the meantime moves it, and it is released there again.
+     * Opens and releases of one board never overlap: the new owner loads the board from the shared board
+     * directory, so it may only start once the old server has saved the board and exited.
+     */
+    private static String route(String board) throws IOException {
+        if (!isValidBoardName(board)) {
+            throw new IOException("Invalid board name " + board);
+        }
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            String node;
+            synchronized (ClusterRouter.class) {
+                awaitIdle(board);
+                node = ring.ownerOf(board);
+                if (node == null) {
+                    throw new IOException("No nodes in the cluster");
+                }
+                placements.put(board, node);
+                busy.merge(board, 1, Integer::sum);
+            }
+
+            try {
+                // Format: OPENED|board|port
+                String[] opened = askNode(node, "OPEN|" + board).split("\\|");
+                if (!opened[0].equals("OPENED")) {
+                    throw new IOException("Node " + node + " could not open " + board + ": " + opened[opened.length - 1]);
+                }
+                synchronized (ClusterRouter.class) {
+                    if (node.equals(placements.get(board))) {
+                        return "REDIRECT|" + node.split(":")[0] + "|" + opened[2];
+                    }
+                }
+
+                // Moved while opening, and the release may have reached the node before the open did
+                release(board, node);
+            } catch (IOException e) {
+                synchronized (ClusterRouter.class) {
+                    placements.remove(board, node);
+                }
+                throw e;
+            } finally {
+                done(board);
+            }
+        }
+        throw new IOException("Cluster membership kept changing while routing " + board);
+    }
+
+    /**
+     * Add or remove a node and release every open board whose owner changed.
+     * Returns the number of boards moved once they are released; their clients are reconnected through the router.
+     */
+    private static int changeNodes(String node, boolean add) {
+        Map<String, String> moved = new HashMap<>();
+        synchronized (ClusterRouter.class) {
+            if (add) {
+                ring.addNode(node);
+            } else {
+                ring.removeNode(node);
+            }
+
+            Iterator<Map.Entry<String, String>> iterator = placements.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, String> placement = iterator.next();
+                if (!placement.getValue().equals(ring.ownerOf(placement.getKey()))) {
+                    moved.put(placement.getKey(), placement.getValue());
+                    busy.merge(placement.getKey(), 1, Integer::sum);
+                    iterator.remove();
+                }
+            }
+        }
+        log.info((add ? "Added" : "Removed") + " node " + node + ", moving " + moved.size() + " boards");
+
+        for (Map.Entry<String, String> board : moved.entrySet()) {
+            try {
+                release(board.getKey(), board.getValue());
+            } finally {
+                done(board.getKey());
+            }
+        }
+        return moved.size();
+    }
+
+    /**
+     * Stop a board's server on a node, which saves the board before it answers.
+     * A node that cannot be reached is given up on, as its board servers most likely went down with it.
+     */
+    private static void release(String board, String node) {
+        try {
+            askNode(node, "RELEASE|" + board);
+        } catch (IOException e) {
+            log.warn("Could not release " + board + " on " + node + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until no open or release of a board is in progress. Must be called holding the class lock.
+     */
+    private static void awaitIdle(String board) throws IOException {
+        while (busy.containsKey(board)) {
+            try {
+                ClusterRouter.class.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for board " + board);
+            }
+        }
+    }
+
+    private static synchronized void done(String board) {
+        busy.computeIfPresent(board, (name, count) -> count > 1 ? count - 1 : null);
+        ClusterRouter.class.notifyAll();
+    }
+
+    private static synchronized Map<String, Integer> boardsPerNode() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String node : ring.getNodes()) {
+            counts.put(node, 0);
+        }
+        for (String node : placements.values()) {
+            counts.merge(node, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Send one control request to a node and return the first line of its answer
+     */
+    private static String askNode(String node, String request) throws IOException {
+        String[] address = node.split(":");
+        try (Socket socket = new Socket(address[0], Integer.parseInt(address[1]));
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true)) {
+            out.println(request);
+            String reply = in.readLine();
+            if (reply == null) {
+                throw new IOException("Node " + node + " closed the connection");
+            }
+            return reply;
+        }
+    }
+}
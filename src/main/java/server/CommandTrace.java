@@ -0,0 +1,321 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A recorded stream of client commands, replayed by TraceReplay to check server changes against real traffic.
+ * The gzip-compressed file starts with the board the recording started from and ends, once recording
+ * stops, with the board version and a hash of the board it ended at. In between is one record per client
+ * connect, command and disconnect, with its arrival time in microseconds since the start and the client
+ * it came from. Board edits carry the board version they produced, or 0 if they were rejected, and are
+ * recorded under the board lock so they appear in the order the server took them.
+ */
+public final class CommandTrace {
+    private static final int MAGIC = 0x4B435432; // "KCT2"
+
+    static final byte CONNECT = 'C';
+    static final byte COMMAND = 'M';
+    static final byte DISCONNECT = 'D';
+    static final byte END = 'E';
+
+    private CommandTrace() {
+    }
+
+    /**
+     * Hash of a board as sent to clients, i.e. the data of a BOARD_UPDATE, to compare boards by
+     */
+    public static String boardHash(String boardData) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(boardData.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Records commands to a trace file on a background thread, so handler threads never wait for the disk.
+     * Records that do not fit in the queue are dropped and counted; a trace with drops still replays but
+     * is not expected to end at the same board. The file is flushed every second, so a crash loses at
+     * most the last second of the trace.
+     */
+    public static class Recorder {
+        private static final Log log = Log.get(Recorder.class);
+        private static final int QUEUE_CAPACITY = 1 << 16;
+        private static final long FLUSH_INTERVAL_MS = 1000;
+
+        private final BlockingQueue<Record> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicLong dropped = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+        private final DataOutputStream out;
+        private final Thread writer;
+        private volatile boolean stopped;
+
+        /**
+         * Start recording to a file, overwriting it, from the given board in its full form
+         */
+        public Recorder(File file, long epoch, long version, String fullBoard, String boardHash) throws IOException {
+            out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16), 1 << 16, true));
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(epoch);
+            out.writeLong(version);
+            writeString(out, fullBoard);
+            writeString(out, boardHash);
+
+            writer = new Thread(this::writeRecords, "trace-writer");
+            writer.setDaemon(true);
+            writer.start();
+            log.info("Recording commands to " + file);
+        }
+
+        /**
+         * Get the time since recording started, in the unit records are stamped with
+         */
+        public long now() {
+            return (System.nanoTime() - startNanos) / 1000;
+        }
+
+        public void connect(long time, int clientId, String login) {
+            add(new Record(CONNECT, time, clientId, 0, login));
+        }
+
+        /**
+         * Record a command, with the board version it produced or 0 if it is not an applied board edit
+         */
+        public void command(long time, int clientId, long appliedVersion, String message) {
+            add(new Record(COMMAND, time, clientId, appliedVersion, message));
+        }
+
+        public void disconnect(long time, int clientId) {
+            add(new Record(DISCONNECT, time, clientId, 0, null));
+        }
+
+        public long droppedCount() {
+            return dropped.get();
+        }
+
+        /**
+         * Stop recording and finish the file with the board the recording ended at.
+         * Called while holding the board lock, so no applied edit is left out of the trace or the board.
+         */
+        public void stop(long version, String boardHash) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+            try {
+                queue.put(new Record(END, now(), 0, version, boardHash));
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void add(Record record) {
+            if (!stopped && !queue.offer(record)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        private void writeRecords() {
+            try {
+                long lastFlush = System.currentTimeMillis();
+                while (true) {
+                    Record record = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    if (record == null || System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MS) {
+                        out.flush();
+                        lastFlush = System.currentTimeMillis();
+                    }
+                    if (record == null) {
+                        continue;
+                    }
+                    out.writeByte(record.type);
+                    writeVarLong(out, record.time);
+                    if (record.type == END) {
+                        writeVarLong(out, record.version);
+                        writeVarLong(out, dropped.get());
+                        writeString(out, record.text);
+                        out.close();
+                        log.info("Command recording finished" + (dropped.get() > 0 ? ", " + dropped.get() + " records dropped" : ""));
+                        return;
+                    }
+                    writeVarLong(out, record.clientId);
+                    if (record.type == COMMAND) {
+                        writeVarLong(out, record.version);
+                    }
+                    if (record.type != DISCONNECT) {
+                        writeString(out, record.text);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Error writing command trace: " + e.getMessage(), e);
+                stopped = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Reads a trace file record by record, so traces larger than memory can be replayed
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final long startMillis;
+        private final long epoch;
+        private final long version;
+        private final String fullBoard;
+        private final String boardHash;
+
+        // Set once the end record has been read
+        private long endVersion = -1;
+        private long droppedCount;
+        private String endBoardHash;
+
+        public Reader(File file) throws IOException {
+            in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16), 1 << 16));
+            if (in.readInt() != MAGIC) {
+                in.close();
+                throw new IOException(file + " is not a command trace");
+            }
+            startMillis = in.readLong();
+            epoch = in.readLong();
+            version = in.readLong();
+            fullBoard = readString(in);
+            boardHash = readString(in);
+        }
+
+        /**
+         * Read the next record, or return null at the end of the trace.
+         * A trace cut short, e.g. by a crash, ends at the last complete record.
+         */
+        public Record next() throws IOException {
+            try {
+                byte type = in.readByte();
+                long time = readVarLong(in);
+                if (type == END) {
+                    endVersion = readVarLong(in);
+                    droppedCount = readVarLong(in);
+                    endBoardHash = readString(in);
+                    return null;
+                }
+                int clientId = (int) readVarLong(in);
+                long appliedVersion = type == COMMAND ? readVarLong(in) : 0;
+                String text = type != DISCONNECT ? readString(in) : null;
+                return new Record(type, time, clientId, appliedVersion, text);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the board the recording started from, with descriptions
+         */
+        public String getFullBoard() {
+            return fullBoard;
+        }
+
+        public String getBoardHash() {
+            return boardHash;
+        }
+
+        /**
+         * Get the board version the recording ended at, or -1 if the trace has no end
+         */
+        public long getEndVersion() {
+            return endVersion;
+        }
+
+        public String getEndBoardHash() {
+            return endBoardHash;
+        }
+
+        public long getDroppedCount() {
+            return droppedCount;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * One recorded event. Text is the login line of a connect and the message of a command.
+     */
+    public static class Record {
+        final byte type;
+        final long time;
+        final int clientId;
+        final long version;
+        final String text;
+
+        Record(byte type, long time, int clientId, long version, String text) {
+            this.type = type;
+            this.time = time;
+            this.clientId = clientId;
+            this.version = version;
+            this.text = text;
+        }
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    // Varint length then UTF-8, short commands take a byte of length rather than four
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarLong(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,66 @@
+package main.java.server;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Consistent hash ring assigning boards to cluster nodes.
+ * Each node is placed on the ring at many virtual points so boards spread evenly, and adding or
+ * removing a node only moves the boards between it and its neighbours instead of reshuffling all of them.
+ * Not thread-safe; callers synchronize.
+ */
+public class ConsistentHashRing {
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Set<String> nodes = new LinkedHashSet<>();
+
+    public void addNode(String node) {
+        if (nodes.add(node)) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public void removeNode(String node) {
+        if (nodes.remove(node)) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                ring.remove(hash(node + "#" + i));
+            }
+        }
+    }
+
+    /**
+     * Get the node that owns a board, or null if the ring is empty
+     */
+    public String ownerOf(String board) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash(board));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    public Set<String> getNodes() {
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    /**
+     * First 8 bytes of the MD5 digest, which spreads similar names like node#1 and node#2 well apart
+     */
+    private static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package main.java.server;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * The upcoming due date reminders for open tasks, so nothing has to walk the board to find the tasks
+ * that became due. Each open task with a due date is filed under the day of its next reminder: its due
+ * day, when it becomes due, then the day after, when it becomes overdue. Adding or removing a task is
+ * O(log n) in the number of days with reminders, and moving to a new day only touches the tasks it
+ * reminds about. Days are the server's local days. Not thread-safe; callers hold the board lock.
+ */
+public class DueDateScheduler {
+    public static final String DUE = "due";
+    public static final String OVERDUE = "overdue";
+
+    // Scheduled tasks by the epoch day of their next reminder, in the order they were scheduled, and by ID
+    private final TreeMap<Long, Map<String, Entry>> entriesByDay = new TreeMap<>();
+    private final Map<String, Entry> entriesById = new HashMap<>();
+    private long today = LocalDate.now().toEpochDay();
+
+    /**
+     * Schedule the reminders for a task put into a column. Tasks in finished columns get none.
+     */
+    public void add(String columnName, Task task) {
+        long due = task.getDueDay();
+        if (due == Task.NO_DUE_DAY || BoardAggregates.isFinished(columnName)) {
+            return;
+        }
+
+        // Reminders are for changes, a task added on or after its due day already shows as due
+        if (due > today) {
+            schedule(new Entry(columnName, task), due);
+        } else if (due == today) {
+            schedule(new Entry(columnName, task), due + 1);
+        }
+    }
+
+    public void remove(String columnName, Task task) {
+        Entry entry = entriesById.remove(task.getId());
+        if (entry != null) {
+            unschedule(entry);
+        }
+    }
+
+    public void move(Task task, String fromColumn, String toColumn) {
+        remove(fromColumn, task);
+        add(toColumn, task);
+    }
+
+    /**
+     * Schedule the reminders for a whole board from scratch, e.g. after loading it
+     */
+    public void rebuild(List<KanbanColumn> board) {
+        entriesByDay.clear();
+        entriesById.clear();
+        today = LocalDate.now().toEpochDay();
+
+        for (KanbanColumn column : board) {
+            for (Task task : column.getTasks()) {
+                add(column.getName(), task);
+            }
+        }
+    }
+
+    /**
+     * Move on to a new day and get the reminders that fall due by then, oldest first.
+     * Tasks that became due stay scheduled for becoming overdue the day after. If days were skipped,
+     * e.g. while the server was down, a task whose due day has passed only gets the overdue reminder.
+     */
+    public List<Reminder> advance(LocalDate now) {
+        if (now.toEpochDay() <= today) {
+            return Collections.emptyList();
+        }
+        today = now.toEpochDay();
+
+        List<Reminder> reminders = new ArrayList<>();
+        List<Entry> dueToday = new ArrayList<>();
+        SortedMap<Long, Map<String, Entry>> passed = entriesByDay.headMap(today, true);
+        for (Map<String, Entry> entries : passed.values()) {
+            for (Entry entry : entries.values()) {
+                if (entry.task.getDueDay() == today) {
+                    reminders.add(new Reminder(DUE, entry.columnName, entry.task));
+                    dueToday.add(entry);
+                } else {
+                    reminders.add(new Reminder(OVERDUE, entry.columnName, entry.task));
+                    entriesById.remove(entry.task.getId());
+                }
+            }
+        }
+        passed.clear();
+
+        for (Entry entry : dueToday) {
+            entriesByDay.computeIfAbsent(today + 1, day -> new LinkedHashMap<>()).put(entry.task.getId(), entry);
+            entry.day = today + 1;
+        }
+        return reminders;
+    }
+
+    /**
+     * Get the number of tasks with a reminder still to come
+     */
+    public int size() {
+        return entriesById.size();
+    }
+
+    private void schedule(Entry entry, long day) {
+        Entry previous = entriesById.put(entry.task.getId(), entry);
+        if (previous != null) {
+            unschedule(previous);
+        }
+        entry.day = day;
+        entriesByDay.computeIfAbsent(day, key -> new LinkedHashMap<>()).put(entry.task.getId(), entry);
+    }
+
+    private void unschedule(Entry entry) {
+        Map<String, Entry> entries = entriesByDay.get(entry.day);
+        if (entries != null && entries.get(entry.task.getId()) == entry) {
+            entries.remove(entry.task.getId());
+            if (entries.isEmpty()) {
+                entriesByDay.remove(entry.day);
+            }
+        }
+    }
+
+    private static class Entry {
+        final String columnName;
+        final Task task;
+        long day;
+
+        Entry(String columnName, Task task) {
+            this.columnName = columnName;
+            this.task = task;
+        }
+    }
+
+    /**
+     * A task that became due or overdue, with the column it is in
+     */
+    public static class Reminder {
+        private final String state;
+        private final String columnName;
+        private final Task task;
+
+        Reminder(String state, String columnName, Task task) {
+            this.state = state;
+            this.columnName = columnName;
+            this.task = task;
+        }
+
+        /**
+         * Get DUE or OVERDUE
+         */
+        public String getState() {
+            return state;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+    }
+}
@@ -38,6 +38,26 @@ public class KanbanColumn implements Serializable {
         tasks.remove(task);
     }
     
+    /**
+     * Find a task in this column by its ID, or return null if it is not here
+     */
+    public Task findTask(String taskId) {
+        int index = indexOfTask(taskId);
+        return index >= 0 ? tasks.get(index) : null;
+    }
+    
+    /**
+     * Get the position of a task in this column by its ID, or -1 if it is not here
+     */
+    public int indexOfTask(String taskId) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).getId().equals(taskId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
     @Override
     public String toString() {
         return "KanbanColumn{" +
@@ -2,23 +2,165 @@ package main.java.server;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import main.java.logging.Log;
 
 /**
  * Server for the Kanban Board application.
  * Manages client connections and synchronizes the board state between clients.
  */
 public class KanbanServer {
-    private static final int PORT = 5000;
+    private static final Log log = Log.get(KanbanServer.class);
+    private static final int PORT = Integer.getInteger("kanban.port", 5000);
     private static final Set<ClientHandler> clientHandlers = Collections.synchronizedSet(new HashSet<>());
     private static final Map<String, ClientHandler> clients = new ConcurrentHashMap<>();
     
     // The shared Kanban board data structure
     private static final List<KanbanColumn> kanbanBoard = Collections.synchronizedList(new ArrayList<>());
     
-    // File to save/load the board state
-    private static final String BOARD_FILE = "kanban_board.dat";
+    // File to save/load the board state, e.g. -Dkanban.boardFile=/var/lib/kanban/board.dat
+    private static final String BOARD_FILE = System.getProperty("kanban.boardFile", "kanban_board.dat");
+    
+    // Latest client snapshot in wire format, sent to joining clients straight from the file
+    private static final SnapshotFile snapshotFile = new SnapshotFile(BOARD_FILE + ".snapshot");
+    
+    // Recent board events kept for clients catching up after a reconnect
+    private static final int EVENT_LOG_CAPACITY = 1024;
+    private static final BoardEventLog eventLog = new BoardEventLog(EVENT_LOG_CAPACITY);
+    
+    // Identifies this server run, since board versions restart from zero on every launch.
+    // A replica takes on its primary's epoch and starts a new one when it is promoted.
+    private static volatile long serverEpoch = System.currentTimeMillis();
+    
+    // Incremented on every board mutation while holding the kanbanBoard lock, volatile so it can be polled without it
+    private static volatile long boardVersion = 0;
+    
+    // Chat runs on its own dispatcher so it never delays board updates
+    private static final int CHAT_HISTORY_CAPACITY = 500;
+    private static final ChatService chatService = new ChatService(CHAT_HISTORY_CAPACITY, KanbanServer::fanOutChat);
+    
+    // Heartbeats: idle clients are sent a PING and reaped if they do not answer in time
+    private static final long PING_INTERVAL_MS = Long.getLong("kanban.pingIntervalMs", 15000);
+    private static final long PONG_TIMEOUT_MS = Long.getLong("kanban.pongTimeoutMs", 10000);
+    private static final TimerWheel<ClientHandler> heartbeatWheel =
+            new TimerWheel<>("heartbeat-wheel", 500, 128, KanbanServer::checkHeartbeat);
+    
+    // PINGs are written here rather than on the wheel, so a client that stops reading can only hold up other
+    // pings until the wheel reaps it, and never the wheel itself
+    private static final ExecutorService heartbeatPinger = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "heartbeat-pinger");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Counters, gauges and latency histograms, published over JMX under the "kanban" domain
+    private static final MetricsRegistry metrics = new MetricsRegistry("kanban");
+    private static final Map<String, CommandMetrics> commandMetrics = createCommandMetrics();
+    private static final LatencyHistogram serializeTime = metrics.histogram("board.serialize");
+    private static final LatencyHistogram persistTime = metrics.histogram("board.persist");
+    private static final LatencyHistogram broadcastTime = metrics.histogram("broadcast.total");
+    private static final LatencyHistogram broadcastClientTime = metrics.histogram("broadcast.perClient");
+    private static final MetricsRegistry.Counter bytesSent = metrics.counter("network.bytesSent");
+    private static final MetricsRegistry.Counter snapshotFileSends = metrics.counter("join.snapshotFileSends");
+    private static final MetricsRegistry.Counter chatDropped = metrics.counter("chat.dropped");
+    private static volatile long lastSnapshotChars;
+    
+    // Snapshots of large boards are encoded in parallel outside the board lock, e.g. -Dkanban.encodeThreads=8
+    private static final SnapshotEncoder snapshotEncoder =
+            new SnapshotEncoder(Integer.getInteger("kanban.encodeThreads", Runtime.getRuntime().availableProcessors()));
+    
+    // Flight recorder event for the command being processed on this handler thread, see ServerEvents
+    private static final ThreadLocal<ServerEvents.CommandEvent> currentCommandEvent = new ThreadLocal<>();
+    
+    // Force the board file to disk after every save, off by default since it makes each edit wait for the disk
+    private static final boolean FSYNC = Boolean.getBoolean("kanban.fsync");
+    
+    // Serializes board file writes, with the epoch and version of the board last written
+    private static final Object saveLock = new Object();
+    private static long savedEpoch;
+    private static long savedVersion = -1;
+    
+    // Replication: the stream sent to followers, if enabled, and whether this server is a read-only follower
+    private static volatile ReplicationSource replicationSource;
+    private static volatile boolean readOnly;
+    
+    // Clients that only want some columns or assignees get matching events instead of full snapshots
+    private static final SubscriptionIndex<ClientHandler> subscriptions = new SubscriptionIndex<>();
+    
+    // The event recorded by the edit being applied and the topics it touches, guarded by the kanbanBoard lock
+    private static String lastEvent;
+    private static List<String> lastEventTopics = Collections.emptyList();
+    
+    // Set with the event when a move or reassignment can take a task into or out of a subscription filter
+    private static TaskChange lastTaskChange;
+    
+    // Live counts per column, assignee and due date state, and the WIP limits, e.g. -Dkanban.wipLimits="In Progress:5".
+    // Adds and moves into a full column are rejected, or let through and only shown as over the limit with
+    // -Dkanban.wipPolicy=flag. Guarded by the kanbanBoard lock, like the sequence number of the last aggregates sent.
+    private static final BoardAggregates aggregates =
+            new BoardAggregates(BoardAggregates.parseLimits(System.getProperty("kanban.wipLimits", "")));
+    private static final boolean WIP_REJECT = !System.getProperty("kanban.wipPolicy", "reject").equals("flag");
+    private static final MetricsRegistry.Counter wipLimitExceeded = metrics.counter("board.wipLimitExceeded");
+    private static long aggregatesSeq;
+    
+    // Reminders for open tasks becoming due and overdue, guarded by the kanbanBoard lock. The clock wakes at
+    // local midnight, or hourly in case the system clock is changed, and only looks at that day's reminders.
+    private static final DueDateScheduler dueDates = new DueDateScheduler();
+    private static final MetricsRegistry.Counter dueReminders = metrics.counter("dueDates.reminders");
+    private static final ScheduledExecutorService boardClock = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "board-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Cleared tasks, and with -Dkanban.archiveAfterMs those finished for that long, move to compressed archive
+    // segments next to the board file, where they can be searched and restored. Archived at most this many per edit.
+    private static final TaskArchive archive = new TaskArchive(new File(BOARD_FILE + ".archive"),
+            Long.getLong("kanban.archiveSegmentBytes", 16 << 20), FSYNC);
+    private static final long ARCHIVE_AFTER_MS = Long.getLong("kanban.archiveAfterMs", 0);
+    private static final int ARCHIVE_BATCH_TASKS = 1000;
+    private static final int ARCHIVE_SEARCH_LIMIT = 200;
+    private static final int ARCHIVE_ROUNDS = 4;
+    
+    // Held while tasks go to or come back from the archive, which is written and read outside the board lock.
+    // The edit that finishes the move only changes the board and the archive's in-memory index.
+    private static final ReentrantLock archiveLock = new ReentrantLock();
+    private static final ScheduledExecutorService archiveAger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "archive-ager");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    // Why the edit on this handler thread was rejected, when it is not the command's usual reason
+    private static final ThreadLocal<String> rejectReason = new ThreadLocal<>();
+    
+    // Taken before an edit releases the board lock and held until its broadcast is sent, so events reach clients in version order
+    private static final ReentrantLock deliveryLock = new ReentrantLock();
+    
+    // Position of the optional sequence number in each board edit, used to reject edits on a replica
+    static final Map<String, Integer> EDIT_SEQ_INDEX =
+            Map.of("ADD_TASK", 7, "MOVE_TASK", 4, "UPDATE_TASK", 7, "DELETE_TASK", 3, "CLEAR_COMPLETED", 1, "RESTORE_TASK", 2);
+    
+    // Client commands recorded for TraceReplay with -Dkanban.recordFile, and the IDs telling clients apart in the trace
+    private static volatile CommandTrace.Recorder recorder;
+    private static final AtomicInteger nextClientId = new AtomicInteger();
     
     public static void main(String[] args) {
         // Initialize the board with default columns
@@ -26,15 +168,64 @@ public class KanbanServer {
         
         // Load saved board state if available
         loadBoardState();
+        registerGauges();
+        
+        // Optionally record every client command from this board on, e.g. -Dkanban.recordFile=monday.trace
+        String recordFile = System.getProperty("kanban.recordFile");
+        if (recordFile != null) {
+            startRecording(new File(recordFile));
+        }
+        
+        // Tasks become due and overdue as days pass without any edit
+        scheduleDueDateClock();
+        if (ARCHIVE_AFTER_MS > 0) {
+            long period = Math.min(ARCHIVE_AFTER_MS, TimeUnit.HOURS.toMillis(1));
+            archiveAger.scheduleWithFixedDelay(KanbanServer::archiveFinishedTasks, period, period, TimeUnit.MILLISECONDS);
+        }
+        
+        // Save once more on shutdown, e.g. when a cluster node hands this board over to another node
+        Runtime.getRuntime().addShutdownHook(new Thread(KanbanServer::saveBoardState, "board-save"));
+        
+        // Optionally follow another server as a read-only replica, e.g. -Dkanban.replicaOf=localhost:5001
+        String replicaOf = System.getProperty("kanban.replicaOf");
+        if (replicaOf != null) {
+            String[] primary = replicaOf.split(":");
+            readOnly = true;
+            new ReplicationFollower(primary[0], Integer.parseInt(primary[1]), metrics).start();
+        }
+        
+        // Optionally stream board changes to replicas on this port, e.g. -Dkanban.replicationPort=5001
+        Integer replicationPort = Integer.getInteger("kanban.replicationPort");
+        if (replicationPort != null) {
+            try {
+                ReplicationSource source = new ReplicationSource(metrics);
+                source.start(replicationPort);
+                replicationSource = source;
+            } catch (IOException e) {
+                log.warn("Could not start replication stream: " + e.getMessage());
+            }
+        }
+        
+        // Optionally serve read-only board snapshots over HTTP, e.g. -Dkanban.httpPort=8080
+        Integer httpPort = Integer.getInteger("kanban.httpPort");
+        if (httpPort != null) {
+            try {
+                new BoardHttpEndpoint().start(httpPort);
+            } catch (IOException e) {
+                log.warn("Could not start board HTTP endpoint: " + e.getMessage());
+            }
+        }
         
         try {
-            ServerSocket serverSocket = new ServerSocket(PORT);
-            System.out.println("Kanban Board Server started on port " + PORT);
-            System.out.println("Waiting for clients to connect...");
+            // Opened as a channel so client sockets have one, for sending the snapshot file with transferTo
+            ServerSocketChannel serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(PORT));
+            log.info("Kanban Board Server started on port " + PORT + (readOnly ? " as a read-only replica" : ""));
+            log.info("Waiting for clients to connect...");
             
             while (true) {
-                Socket clientSocket = serverSocket.accept();
-                System.out.println("New client connected: " + clientSocket);
+                Socket clientSocket = serverChannel.accept().socket();
+                log.info("New client connected: " + clientSocket);
                 
                 // Create and start a new client handler thread
                 ClientHandler clientHandler = new ClientHandler(clientSocket);
@@ -42,8 +233,7 @@ public class KanbanServer {
                 clientHandler.start();
             }
         } catch (IOException e) {
-            System.err.println("Server error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Server error: " + e.getMessage(), e);
         }
     }
     
@@ -56,218 +246,1210 @@ public class KanbanServer {
         kanbanBoard.add(new KanbanColumn("Done"));
         kanbanBoard.add(new KanbanColumn("Completed"));
         
-        System.out.println("Initialized board with columns:");
+        log.info("Initialized board with columns:");
         for (KanbanColumn column : kanbanBoard) {
-            System.out.println("- " + column.getName());
+            log.info("- " + column.getName());
+        }
+    }
+    
+    /**
+     * Start recording client commands, from the board as it is now.
+     * The recording is finished with the board it ended at when the server shuts down.
+     */
+    private static void startRecording(File file) {
+        CommandTrace.Recorder started;
+        synchronized (kanbanBoard) {
+            try {
+                started = new CommandTrace.Recorder(file, serverEpoch, boardVersion, serializeBoardState(true),
+                        CommandTrace.boardHash(serializeBoardState(false)));
+            } catch (IOException e) {
+                log.warn("Could not record commands to " + file + ": " + e.getMessage());
+                return;
+            }
+            recorder = started;
+        }
+        metrics.gauge("trace.dropped", started::droppedCount);
+        Runtime.getRuntime().addShutdownHook(new Thread(KanbanServer::stopRecording, "trace-stop"));
+    }
+    
+    private static void stopRecording() {
+        synchronized (kanbanBoard) {
+            recorder.stop(boardVersion, CommandTrace.boardHash(serializeBoardState(false)));
+        }
+    }
+    
+    /**
+     * Record the client command behind the edit just tried, with the version it produced if it was applied.
+     * Called under the board lock, so the trace lists edits in the order they were applied or rejected.
+     * Edits not sent by a client are not recorded.
+     */
+    private static void recordEdit(boolean applied) {
+        CommandTrace.Recorder trace = recorder;
+        if (trace != null && Thread.currentThread() instanceof ClientHandler) {
+            ClientHandler handler = (ClientHandler) Thread.currentThread();
+            trace.command(handler.commandArrival, handler.clientId, applied ? boardVersion : 0, handler.currentMessage);
+            handler.commandRecorded = true;
+        }
+    }
+    
+    /**
+     * Create the metrics for every command a client can send.
+     * Only known commands are timed, so a client sending junk cannot create new metrics.
+     */
+    private static Map<String, CommandMetrics> createCommandMetrics() {
+        Map<String, CommandMetrics> byCommand = new HashMap<>();
+        for (String command : new String[] {"ADD_TASK", "MOVE_TASK", "UPDATE_TASK", "DELETE_TASK", "CLEAR_COMPLETED",
+                "RESTORE_TASK", "ARCHIVE_TASKS"}) {
+            byCommand.put(command, new CommandMetrics(command, true));
+        }
+        for (String command : new String[] {"PONG", "REFRESH", "CHAT_MESSAGE", "CHAT_HISTORY", "SUBSCRIBE", "GET_TASK",
+                "ARCHIVE_SEARCH"}) {
+            byCommand.put(command, new CommandMetrics(command, false));
+        }
+        return byCommand;
+    }
+    
+    /**
+     * Publish gauges for connected clients, board size and tasks per column
+     */
+    private static void registerGauges() {
+        metrics.gauge("clients.connected", clientHandlers::size);
+        metrics.gauge("board.version", () -> boardVersion);
+        metrics.gauge("board.snapshotChars", () -> lastSnapshotChars);
+        metrics.gauge("log.dropped", Log::droppedCount);
+        metrics.gauge("dueDates.scheduled", () -> readBoard(board -> dueDates.size()));
+        metrics.gauge("archive.tasks", archive::size);
+        synchronized (kanbanBoard) {
+            for (KanbanColumn column : kanbanBoard) {
+                String columnName = column.getName();
+                metrics.gauge("board.tasks." + columnName, () -> readBoard(board -> {
+                    KanbanColumn current = findColumn(columnName);
+                    return current != null ? current.getTasks().size() : 0;
+                }));
+            }
         }
     }
     
     /**
      * Load the board state from file
      */
-    private static void loadBoardState() {
+    static void loadBoardState() {
+        try {
+            List<KanbanColumn> savedBoard = readBoardFile();
+            if (savedBoard != null && !savedBoard.isEmpty()) {
+                kanbanBoard.clear();
+                kanbanBoard.addAll(savedBoard);
+                log.info("Board state loaded from file.");
+            }
+        } catch (Exception e) {
+            log.error("Error loading board state: " + e.getMessage(), e);
+        }
+        
+        synchronized (kanbanBoard) {
+            stampFinishedTasks();
+            aggregates.rebuild(kanbanBoard);
+            aggregates.drainChanges();
+            dueDates.rebuild(kanbanBoard);
+        }
+        
+        try {
+            archive.load();
+        } catch (IOException e) {
+            log.error("Error loading task archive: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Read the board saved in the board file, or return null if there is none
+     */
+    static List<KanbanColumn> readBoardFile() throws IOException, ClassNotFoundException {
+        File file = new File(BOARD_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
+            @SuppressWarnings("unchecked")
+            List<KanbanColumn> savedBoard = (List<KanbanColumn>) ois.readObject();
+            return savedBoard;
+        }
+    }
+    
+    /**
+     * Start the archive age of finished tasks from now if it is not known, e.g. for boards saved before
+     * it was recorded. Must be called while holding the kanbanBoard lock.
+     */
+    private static void stampFinishedTasks() {
+        long now = System.currentTimeMillis();
+        for (KanbanColumn column : kanbanBoard) {
+            if (BoardAggregates.isFinished(column.getName())) {
+                for (Task task : column.getTasks()) {
+                    if (task.getFinishedAt() == 0) {
+                        task.setFinishedAt(now);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Save the current board state to file
+     */
+    static void saveBoardState() {
+        saveBoardState(null);
+    }
+    
+    /**
+     * Save a board copied under the board lock to file, or a fresh copy of the board if it is null.
+     * The file is written without the board lock. A copy older than the one last saved is skipped,
+     * since saves from concurrent edits can get here out of order.
+     */
+    static void saveBoardState(SnapshotEncoder.BoardSnapshot snapshot) {
+        ServerEvents.PersistEvent event = new ServerEvents.PersistEvent();
+        event.begin();
+        long start = System.nanoTime();
         try {
-            File file = new File(BOARD_FILE);
-            if (file.exists()) {
-                FileInputStream fis = new FileInputStream(file);
-                ObjectInputStream ois = new ObjectInputStream(fis);
+            synchronized (saveLock) {
+                SnapshotEncoder.BoardSnapshot board = snapshot != null ? snapshot : captureBoard();
+                if (board.getEpoch() == savedEpoch && board.getVersion() < savedVersion) {
+                    return;
+                }
                 
-                @SuppressWarnings("unchecked")
-                List<KanbanColumn> savedBoard = (List<KanbanColumn>) ois.readObject();
+                // Write a temporary file and move it into place, so a crash mid-write never leaves a torn board file
+                File tempFile = new File(BOARD_FILE + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(tempFile);
+                     ObjectOutputStream oos = new ObjectOutputStream(fos)) {
+                    oos.writeObject(board.toColumns());
+                    oos.flush();
+                    event.bytes = fos.getChannel().position();
+                    
+                    if (FSYNC) {
+                        long syncStart = System.nanoTime();
+                        fos.getFD().sync();
+                        event.fsyncTime = System.nanoTime() - syncStart;
+                    }
+                } catch (IOException e) {
+                    Files.deleteIfExists(tempFile.toPath());
+                    throw e;
+                }
+                Files.move(tempFile.toPath(), Paths.get(BOARD_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                savedEpoch = board.getEpoch();
+                savedVersion = board.getVersion();
+            }
+            log.debug("Board state saved to file.");
+        } catch (IOException e) {
+            log.error("Error saving board state: " + e.getMessage(), e);
+        } finally {
+            persistTime.record(System.nanoTime() - start);
+            event.commit();
+        }
+    }
+    
+    /**
+     * Broadcast a message to all connected clients
+     */
+    private static void broadcastMessage(String message) {
+        broadcastMessage(message, false);
+    }
+    
+    /**
+     * Broadcast a message to all connected clients, or only to those without a subscription filter
+     */
+    private static void broadcastMessage(String message, boolean skipFiltered) {
+        ServerEvents.BroadcastEvent event = new ServerEvents.BroadcastEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int recipients = 0;
+        synchronized (clientHandlers) {
+            long clientStart = start;
+            for (ClientHandler handler : clientHandlers) {
+                if (skipFiltered && handler.filtered) {
+                    continue;
+                }
+                recipients++;
+                handler.sendMessage(message);
+                long clientEnd = System.nanoTime();
+                broadcastClientTime.record(clientEnd - clientStart);
+                clientStart = clientEnd;
+            }
+        }
+        broadcastTime.record(System.nanoTime() - start);
+        commitBroadcastEvent(event, message, recipients);
+    }
+    
+    private static void commitBroadcastEvent(ServerEvents.BroadcastEvent event, String message, int recipients) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.messageType = message.substring(0, Math.max(0, message.indexOf('|')));
+            event.payloadSize = message.length();
+            event.recipients = recipients;
+            event.commit();
+        }
+    }
+    
+    /**
+     * Called by the heartbeat wheel when a client's timeout expires.
+     * Clients that were active since the last check are simply rescheduled, so the
+     * wheel holds one timeout per connection no matter how many messages it sends.
+     * Never writes to the client: PINGs go out on the pinger thread, and a client whose
+     * write has been stuck for the PONG timeout is reaped, which also unblocks the writer.
+     */
+    private static void checkHeartbeat(ClientHandler handler) {
+        if (handler.socket.isClosed()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis();
+        long writeStarted = handler.writeStartedAt;
+        if (writeStarted != 0 && now - writeStarted >= PONG_TIMEOUT_MS) {
+            log.info("Reaping client stuck on a write: " + handler.username);
+            handler.closeSocket();
+            return;
+        }
+        
+        long idle = now - handler.lastActivity;
+        long pingSent = handler.pingSentAt;
+        
+        if (idle < PING_INTERVAL_MS) {
+            handler.heartbeat = heartbeatWheel.schedule(handler, PING_INTERVAL_MS - idle);
+        } else if (pingSent == 0) {
+            // Checked again after the PONG timeout, to retry if the ping could not be written or reap a stuck write
+            if (!handler.pingQueued) {
+                handler.pingQueued = true;
+                heartbeatPinger.execute(handler::sendPing);
+            }
+            handler.heartbeat = heartbeatWheel.schedule(handler, PONG_TIMEOUT_MS);
+        } else if (now - pingSent < PONG_TIMEOUT_MS) {
+            handler.heartbeat = heartbeatWheel.schedule(handler, PONG_TIMEOUT_MS - (now - pingSent));
+        } else {
+            log.info("Reaping unresponsive client: " + handler.username);
+            handler.closeSocket();
+        }
+    }
+    
+    /**
+     * Send a chat line to all connected clients.
+     * Runs on the chat dispatcher and only holds the client list lock long enough to copy it.
+     */
+    private static void fanOutChat(String message) {
+        ServerEvents.BroadcastEvent event = new ServerEvents.BroadcastEvent();
+        event.begin();
+        ClientHandler[] recipients;
+        synchronized (clientHandlers) {
+            recipients = clientHandlers.toArray(new ClientHandler[0]);
+        }
+        int sent = 0;
+        for (ClientHandler handler : recipients) {
+            if (handler.chatEnabled) {
+                handler.sendMessage(message);
+                sent++;
+            }
+        }
+        commitBroadcastEvent(event, message, sent);
+    }
+    
+    /**
+     * Broadcast the current board state to all clients
+     */
+    private static void broadcastBoardState() {
+        broadcastMessage(boardSnapshotMessage(false), true);
+        ClientHandler[] recipients;
+        synchronized (clientHandlers) {
+            recipients = clientHandlers.toArray(new ClientHandler[0]);
+        }
+        for (ClientHandler handler : recipients) {
+            if (handler.filtered) {
+                handler.sendMessage(snapshotMessage(captureBoard(handler.filter), false));
+            }
+        }
+        
+        // Save the board state to file after each update
+        saveBoardState();
+    }
+    
+    /**
+     * Broadcast an applied edit: the full board to clients without a filter, and to each filtered client
+     * the event it needs, if the edit concerns it at all.
+     * Called holding the delivery lock but not the board lock, which must not be taken here.
+     */
+    private static void broadcastEdit(String snapshotMessage, Map<ClientHandler, String> filteredMessages) {
+        if (snapshotMessage != null) {
+            broadcastMessage(snapshotMessage, true);
+        }
+        for (Map.Entry<ClientHandler, String> entry : filteredMessages.entrySet()) {
+            entry.getKey().sendMessage(entry.getValue());
+        }
+    }
+    
+    /**
+     * Build the board event for each filtered client an edit concerns. A task moved or reassigned into a
+     * client's filter is added to its board in full, and one that left the filter is deleted from it.
+     * Must be called while holding the kanbanBoard lock.
+     */
+    private static Map<ClientHandler, String> filteredEventMessages() {
+        String prefix = "BOARD_EVENT|" + serverEpoch + "|" + boardVersion + "|";
+        String eventMessage = prefix + summarizeEvent(lastEvent);
+        Map<ClientHandler, String> messages = new HashMap<>();
+        TaskChange change = lastTaskChange;
+        if (change == null) {
+            for (ClientHandler handler : subscriptions.match(lastEventTopics)) {
+                messages.put(handler, eventMessage);
+            }
+            return messages;
+        }
+        
+        Set<ClientHandler> before = subscriptions.match(taskTopics(change.fromColumn, change.previous));
+        String enterMessage = prefix + summarizeEvent(taskEvent("ADD_TASK", change.toColumn, change.task));
+        for (ClientHandler handler : subscriptions.match(taskTopics(change.toColumn, change.task))) {
+            messages.put(handler, before.remove(handler) ? eventMessage : enterMessage);
+        }
+        String leaveMessage = prefix + "DELETE_TASK|" + change.fromColumn + "|" + change.task.getId();
+        for (ClientHandler handler : before) {
+            messages.put(handler, leaveMessage);
+        }
+        return messages;
+    }
+    
+    private static List<String> taskTopics(String columnName, Task task) {
+        return List.of(SubscriptionIndex.column(columnName), SubscriptionIndex.assignee(task.getAssignee()));
+    }
+    
+    /**
+     * Build an event carrying a whole task, in the ADD_TASK layout
+     */
+    private static String taskEvent(String type, String columnName, Task task) {
+        return type + "|" + columnName + "|" + task.getId() + "|" + task.getTitle() + "|"
+                + task.getDescription() + "|" + task.getAssignee() + "|" + task.getDueDate();
+    }
+    
+    /**
+     * Record a board mutation under the next board version, with the columns and assignees it touches.
+     * Must be called while holding the kanbanBoard lock.
+     */
+    private static void recordEvent(String event, List<String> topics) {
+        boardVersion++;
+        eventLog.append(boardVersion, event);
+        lastEvent = event;
+        lastEventTopics = topics;
+        lastTaskChange = null;
+        
+        ReplicationSource source = replicationSource;
+        if (source != null) {
+            source.publish("BOARD_EVENT|" + serverEpoch + "|" + boardVersion + "|" + event);
+        }
+    }
+    
+    /**
+     * Get the current board version without taking the board lock
+     */
+    static long currentVersion() {
+        return boardVersion;
+    }
+    
+    static long serverEpoch() {
+        return serverEpoch;
+    }
+    
+    /**
+     * Run a read-only function over the board while holding the board lock
+     */
+    static <T> T readBoard(Function<List<KanbanColumn>, T> reader) {
+        synchronized (kanbanBoard) {
+            return reader.apply(kanbanBoard);
+        }
+    }
+    
+    /**
+     * Build a full BOARD_UPDATE message tagged with the current board version.
+     * Clients get description hashes and fetch descriptions with GET_TASK, replicas need the text.
+     */
+    private static String boardSnapshotMessage(boolean withDescriptions) {
+        return snapshotMessage(captureBoard(), withDescriptions);
+    }
+    
+    private static String snapshotMessage(SnapshotEncoder.BoardSnapshot snapshot, boolean withDescriptions) {
+        return "BOARD_UPDATE|" + snapshot.getEpoch() + "|" + snapshot.getVersion() + "|" + encodeBoard(snapshot, withDescriptions);
+    }
+    
+    /**
+     * Build the messages that bring a client or replica at the given version up to date.
+     * Sends only the missed events if they are still in the event log, otherwise a full snapshot.
+     */
+    static List<String> catchUpMessages(long epoch, long version, boolean withDescriptions) {
+        SnapshotEncoder.BoardSnapshot snapshot;
+        synchronized (kanbanBoard) {
+            List<String> messages = missedEventMessages(epoch, version, withDescriptions);
+            if (messages != null) {
+                return messages;
+            }
+            snapshot = captureBoard();
+        }
+        return Collections.singletonList(snapshotMessage(snapshot, withDescriptions));
+    }
+    
+    /**
+     * Build BOARD_EVENT messages for the events after the given version,
+     * or return null if they are no longer in the event log
+     */
+    private static List<String> missedEventMessages(long epoch, long version, boolean withDescriptions) {
+        synchronized (kanbanBoard) {
+            List<String> missed = epoch == serverEpoch ? eventLog.eventsSince(version) : null;
+            if (missed == null) {
+                return null;
+            }
+            
+            List<String> messages = new ArrayList<>(missed.size());
+            long eventVersion = version;
+            for (String event : missed) {
+                eventVersion++;
+                messages.add("BOARD_EVENT|" + serverEpoch + "|" + eventVersion + "|"
+                        + (withDescriptions ? event : summarizeEvent(event)));
+            }
+            return messages;
+        }
+    }
+    
+    /**
+     * Open the snapshot file for a joining client, first rewriting it if the event log
+     * no longer reaches back to its version
+     */
+    private static SnapshotFile.Reader openSnapshotFile() throws IOException {
+        return snapshotFile.open(serverEpoch, eventLog::covers, () -> {
+            SnapshotEncoder.BoardSnapshot snapshot = captureBoard();
+            return new SnapshotFile.Snapshot(snapshot.getEpoch(), snapshot.getVersion(), snapshotMessage(snapshot, false));
+        });
+    }
+    
+    /**
+     * Replace the description of an ADD_TASK or UPDATE_TASK event with its hash, as sent to clients
+     */
+    private static String summarizeEvent(String event) {
+        if (!event.startsWith("ADD_TASK|") && !event.startsWith("UPDATE_TASK|") && !event.startsWith("RESTORE_TASK|")) {
+            return event;
+        }
+        
+        // Format: ADD_TASK|columnName|taskId|title|description|assignee|dueDate, same for UPDATE_TASK and
+        // RESTORE_TASK, which clients see as an add
+        String[] parts = event.split("\\|", -1);
+        parts[0] = parts[0].equals("RESTORE_TASK") ? "ADD_TASK" : parts[0];
+        parts[4] = Task.hashDescription(parts[4]);
+        return String.join("|", parts);
+    }
+    
+    /**
+     * Copy the board with its epoch and version, so it can be encoded without holding the board lock
+     */
+    private static SnapshotEncoder.BoardSnapshot captureBoard() {
+        synchronized (kanbanBoard) {
+            return SnapshotEncoder.BoardSnapshot.of(serverEpoch, boardVersion, kanbanBoard);
+        }
+    }
+    
+    /**
+     * Copy only the tasks inside a subscription filter, those in one of its columns or with one of its assignees
+     */
+    private static SnapshotEncoder.BoardSnapshot captureBoard(Set<String> filter) {
+        synchronized (kanbanBoard) {
+            return SnapshotEncoder.BoardSnapshot.of(serverEpoch, boardVersion, kanbanBoard,
+                    (columnName, task) -> filter.contains(SubscriptionIndex.column(columnName))
+                            || filter.contains(SubscriptionIndex.assignee(task.getAssignee())));
+        }
+    }
+    
+    /**
+     * Serialize the board state to a string for transmission.
+     * Without descriptions each task carries the hash of its description in that field instead.
+     */
+    static String serializeBoardState(boolean withDescriptions) {
+        return encodeBoard(captureBoard(), withDescriptions);
+    }
+    
+    private static String encodeBoard(SnapshotEncoder.BoardSnapshot snapshot, boolean withDescriptions) {
+        long start = System.nanoTime();
+        String state = snapshotEncoder.encode(snapshot, withDescriptions);
+        
+        lastSnapshotChars = state.length();
+        serializeTime.record(System.nanoTime() - start);
+        
+        log.debug(() -> "Serialized board state: " + state);
+        return state;
+    }
+    
+    /**
+     * Parse a board serialized by serializeBoardState with descriptions, e.g. a snapshot received from a primary
+     */
+    static List<KanbanColumn> parseBoardState(String boardData) throws IOException {
+        return SnapshotEncoder.decode(boardData);
+    }
+    
+    /**
+     * Build the answer to GET_TASK with a task's description.
+     * Format: TASK|taskId|descriptionHash|description or TASK_NOT_FOUND|taskId
+     */
+    private static String taskDetailsMessage(String taskId) {
+        synchronized (kanbanBoard) {
+            for (KanbanColumn column : kanbanBoard) {
+                for (Task task : column.getTasks()) {
+                    if (task.getId().equals(taskId)) {
+                        return "TASK|" + taskId + "|" + task.getDescriptionHash() + "|" + task.getDescription();
+                    }
+                }
+            }
+        }
+        return "TASK_NOT_FOUND|" + taskId;
+    }
+    
+    /**
+     * Find a column by name. Must be called while holding the kanbanBoard lock.
+     */
+    private static KanbanColumn findColumn(String columnName) {
+        for (KanbanColumn column : kanbanBoard) {
+            if (column.getName().equals(columnName)) {
+                return column;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Add a new task to the specified column.
+     * Returns false if the column does not exist.
+     */
+    private static boolean addTask(String columnName, Task task) {
+        return applyEdit("ADD_TASK", () -> {
+            KanbanColumn column = findColumn(columnName);
+            if (column == null || rejectedByWipLimit(columnName)) {
+                return false;
+            }
+            column.addTask(task);
+            if (BoardAggregates.isFinished(columnName)) {
+                task.setFinishedAt(System.currentTimeMillis());
+            }
+            aggregates.add(columnName, task);
+            dueDates.add(columnName, task);
+            recordEvent(taskEvent("ADD_TASK", columnName, task), taskTopics(columnName, task));
+            return true;
+        });
+    }
+    
+    /**
+     * Move a task from one column to another.
+     * Returns false if either column or the task does not exist.
+     */
+    private static boolean moveTask(String taskId, String fromColumn, String toColumn) {
+        return applyEdit("MOVE_TASK", () -> {
+            KanbanColumn source = findColumn(fromColumn);
+            KanbanColumn destination = findColumn(toColumn);
+            if (source == null || destination == null) {
+                return false;
+            }
+            
+            // Find and remove the task from the source column
+            Task taskToMove = source.findTask(taskId);
+            if (taskToMove == null || (!fromColumn.equals(toColumn) && rejectedByWipLimit(toColumn))) {
+                return false;
+            }
+            
+            // Add the task to the destination column
+            source.removeTask(taskToMove);
+            destination.addTask(taskToMove);
+            if (!BoardAggregates.isFinished(fromColumn) && BoardAggregates.isFinished(toColumn)) {
+                taskToMove.setFinishedAt(System.currentTimeMillis());
+            }
+            aggregates.move(taskToMove, fromColumn, toColumn);
+            dueDates.move(taskToMove, fromColumn, toColumn);
+            recordEvent("MOVE_TASK|" + taskId + "|" + fromColumn + "|" + toColumn,
+                    List.of(SubscriptionIndex.column(fromColumn), SubscriptionIndex.column(toColumn),
+                            SubscriptionIndex.assignee(taskToMove.getAssignee())));
+            lastTaskChange = new TaskChange(fromColumn, taskToMove, toColumn, taskToMove);
+            return true;
+        });
+    }
+    
+    /**
+     * Update an existing task.
+     * Returns false if the task is not in the given column.
+     */
+    private static boolean updateTask(String columnName, Task updatedTask) {
+        return applyEdit("UPDATE_TASK", () -> {
+            KanbanColumn column = findColumn(columnName);
+            int index = column != null ? column.indexOfTask(updatedTask.getId()) : -1;
+            if (index < 0) {
+                return false;
+            }
+            
+            // Both the old and the new assignee hear about a reassignment
+            Task previous = column.getTasks().set(index, updatedTask);
+            updatedTask.setFinishedAt(previous.getFinishedAt());
+            aggregates.remove(columnName, previous);
+            aggregates.add(columnName, updatedTask);
+            dueDates.remove(columnName, previous);
+            dueDates.add(columnName, updatedTask);
+            recordEvent(taskEvent("UPDATE_TASK", columnName, updatedTask),
+                    List.of(SubscriptionIndex.column(columnName), SubscriptionIndex.assignee(previous.getAssignee()),
+                            SubscriptionIndex.assignee(updatedTask.getAssignee())));
+            lastTaskChange = new TaskChange(columnName, previous, columnName, updatedTask);
+            return true;
+        });
+    }
+    
+    /**
+     * Delete a task from the board.
+     * Returns false if the task is not in the given column.
+     */
+    private static boolean deleteTask(String columnName, String taskId) {
+        return applyEdit("DELETE_TASK", () -> {
+            KanbanColumn column = findColumn(columnName);
+            List<String> topics = new ArrayList<>();
+            topics.add(SubscriptionIndex.column(columnName));
+            if (column == null || !column.getTasks().removeIf(task -> {
+                if (!task.getId().equals(taskId)) {
+                    return false;
+                }
+                topics.add(SubscriptionIndex.assignee(task.getAssignee()));
+                aggregates.remove(columnName, task);
+                dueDates.remove(columnName, task);
+                return true;
+            })) {
+                return false;
+            }
+            recordEvent("DELETE_TASK|" + columnName + "|" + taskId, topics);
+            return true;
+        });
+    }
+    
+    /**
+     * Clear all tasks from the "Done" and "Completed" columns into the archive.
+     * Returns false, leaving the board and the archive as they were, if they cannot be archived.
+     */
+    private static boolean clearCompletedTasks() {
+        archiveLock.lock();
+        try {
+            // Tasks finished while a batch is written go in the next one, until the columns hold no unwritten tasks
+            long now = System.currentTimeMillis();
+            Set<Task> written = Collections.newSetFromMap(new IdentityHashMap<>());
+            List<TaskArchive.Batch> batches = new ArrayList<>();
+            for (int round = 0; round < ARCHIVE_ROUNDS; round++) {
+                Map<String, List<Task>> unwritten = readBoard(board -> unwrittenFinishedTasks(written));
+                if (round > 0 && unwritten.isEmpty()) {
+                    break;
+                }
+                TaskArchive.Batch batch = writeToArchive(unwritten, now);
+                if (batch == null) {
+                    for (TaskArchive.Batch earlier : batches) {
+                        markRemovedFromArchive(earlier.taskIds());
+                    }
+                    return applyEdit("CLEAR_COMPLETED", () -> false);
+                }
+                batches.add(batch);
+                for (List<Task> tasks : unwritten.values()) {
+                    written.addAll(tasks);
+                }
+            }
+            
+            List<String> left = new ArrayList<>();
+            boolean applied = applyEdit("CLEAR_COMPLETED", () -> {
+                // Replicas clear whatever is in the columns, so tasks finished since the last check are
+                // archived too. Only those are written under the lock, and there are seldom any.
+                Map<String, List<Task>> late = unwrittenFinishedTasks(written);
+                if (!late.isEmpty()) {
+                    TaskArchive.Batch lateBatch = writeToArchive(late, now);
+                    if (lateBatch == null) {
+                        return false;
+                    }
+                    batches.add(lateBatch);
+                }
                 
-                if (savedBoard != null && !savedBoard.isEmpty()) {
-                    kanbanBoard.clear();
-                    kanbanBoard.addAll(savedBoard);
-                    System.out.println("Board state loaded from file.");
+                List<Task> cleared = new ArrayList<>();
+                Set<String> topics = new LinkedHashSet<>();
+                for (KanbanColumn column : kanbanBoard) {
+                    if (BoardAggregates.isFinished(column.getName())) {
+                        topics.add(SubscriptionIndex.column(column.getName()));
+                        for (Task task : column.getTasks()) {
+                            topics.add(SubscriptionIndex.assignee(task.getAssignee()));
+                            aggregates.remove(column.getName(), task);
+                            dueDates.remove(column.getName(), task);
+                            cleared.add(task);
+                        }
+                        column.getTasks().clear();
+                    }
+                }
+                // A task updated between rounds leaves its older copy behind, but its ID is archived with the newer one
+                Set<String> clearedIds = new HashSet<>();
+                for (Task task : cleared) {
+                    clearedIds.add(task.getId());
+                }
+                for (TaskArchive.Batch batch : batches) {
+                    for (String taskId : archive.publish(batch, cleared)) {
+                        if (!clearedIds.contains(taskId)) {
+                            left.add(taskId);
+                        }
+                    }
+                }
+                recordEvent("CLEAR_COMPLETED", new ArrayList<>(topics));
+                return true;
+            });
+            if (applied) {
+                markRemovedFromArchive(left);
+            } else {
+                for (TaskArchive.Batch batch : batches) {
+                    markRemovedFromArchive(batch.taskIds());
+                }
+            }
+            return applied;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+    
+    /**
+     * Get the tasks in finished columns that are not among those written to the archive, by column.
+     * Must be called while holding the kanbanBoard lock.
+     */
+    private static Map<String, List<Task>> unwrittenFinishedTasks(Set<Task> written) {
+        Map<String, List<Task>> tasks = new LinkedHashMap<>();
+        for (KanbanColumn column : kanbanBoard) {
+            if (BoardAggregates.isFinished(column.getName())) {
+                for (Task task : column.getTasks()) {
+                    if (!written.contains(task)) {
+                        tasks.computeIfAbsent(column.getName(), name -> new ArrayList<>()).add(task);
+                    }
+                }
+            }
+        }
+        return tasks;
+    }
+    
+    /**
+     * Archive up to ARCHIVE_BATCH_TASKS tasks of a column, those finished before the cutoff if taskIds is null.
+     * Returns false if there were none to archive or they could not be archived.
+     */
+    private static boolean archiveTasks(String columnName, Set<String> taskIds, long cutoff) {
+        archiveLock.lock();
+        try {
+            List<Task> candidates = readBoard(board -> {
+                KanbanColumn column = findColumn(columnName);
+                List<Task> tasks = new ArrayList<>();
+                for (Task task : column != null ? column.getTasks() : Collections.<Task>emptyList()) {
+                    if (taskIds != null ? taskIds.contains(task.getId()) : task.getFinishedAt() < cutoff) {
+                        tasks.add(task);
+                        if (tasks.size() == ARCHIVE_BATCH_TASKS) {
+                            break;
+                        }
+                    }
                 }
+                return tasks;
+            });
+            TaskArchive.Batch batch = candidates.isEmpty() ? null
+                    : writeToArchive(Map.of(columnName, candidates), System.currentTimeMillis());
+            if (batch == null) {
+                return applyEdit("ARCHIVE_TASKS", () -> false);
+            }
+            
+            // Tasks moved, updated or deleted while the batch was written stay out of the archive
+            List<String> left = new ArrayList<>();
+            boolean applied = applyEdit("ARCHIVE_TASKS", () -> {
+                KanbanColumn column = findColumn(columnName);
+                if (column == null) {
+                    return false;
+                }
+                Set<Task> written = Collections.newSetFromMap(new IdentityHashMap<>());
+                written.addAll(candidates);
+                List<Task> archived = new ArrayList<>();
+                column.getTasks().removeIf(task -> written.contains(task) && archived.add(task));
+                if (archived.isEmpty()) {
+                    return false;
+                }
+                left.addAll(archive.publish(batch, archived));
                 
-                ois.close();
-                fis.close();
+                List<String> ids = new ArrayList<>();
+                Set<String> topics = new LinkedHashSet<>();
+                topics.add(SubscriptionIndex.column(columnName));
+                for (Task task : archived) {
+                    ids.add(task.getId());
+                    topics.add(SubscriptionIndex.assignee(task.getAssignee()));
+                    aggregates.remove(columnName, task);
+                    dueDates.remove(columnName, task);
+                }
+                recordEvent("ARCHIVE_TASKS|" + columnName + "|" + String.join(",", ids), new ArrayList<>(topics));
+                return true;
+            });
+            markRemovedFromArchive(applied ? left : batch.taskIds());
+            return applied;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+    
+    /**
+     * Archive the tasks that have been in a finished column for longer than kanban.archiveAfterMs
+     */
+    private static void archiveFinishedTasks() {
+        if (readOnly) {
+            return;
+        }
+        try {
+            long cutoff = System.currentTimeMillis() - ARCHIVE_AFTER_MS;
+            List<String> finishedColumns = readBoard(board -> {
+                List<String> names = new ArrayList<>();
+                for (KanbanColumn column : board) {
+                    if (BoardAggregates.isFinished(column.getName())) {
+                        names.add(column.getName());
+                    }
+                }
+                return names;
+            });
+            for (String columnName : finishedColumns) {
+                while (archiveTasks(columnName, null, cutoff)) {
+                    // Next batch
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Error loading board state: " + e.getMessage());
-            e.printStackTrace();
+        } catch (RuntimeException e) {
+            log.error("Error archiving finished tasks: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Put an archived task back on the board, in the column it was archived from if that still exists.
+     * A replica is given the task by its primary instead of reading it from its own archive.
+     */
+    private static boolean restoreTask(String taskId, String replicatedColumn, Task replicatedTask) {
+        archiveLock.lock();
+        try {
+            TaskArchive.ArchivedTask archived = null;
+            if (replicatedTask == null) {
+                try {
+                    archived = archive.read(taskId);
+                } catch (IOException e) {
+                    log.error("Error reading archived task " + taskId + ": " + e.getMessage(), e);
+                    rejectReason.set("Archive unavailable");
+                }
+                if (archived == null) {
+                    return applyEdit("RESTORE_TASK", () -> false);
+                }
+            }
+            
+            TaskArchive.ArchivedTask fromArchive = archived;
+            List<String> removed = new ArrayList<>();
+            boolean applied = applyEdit("RESTORE_TASK", () -> {
+                Task task = replicatedTask;
+                String columnName = replicatedColumn;
+                if (task == null) {
+                    task = fromArchive.getTask();
+                    columnName = findColumn(fromArchive.getColumnName()) != null ? fromArchive.getColumnName() : kanbanBoard.get(0).getName();
+                }
+                
+                KanbanColumn column = findColumn(columnName);
+                if (column == null || rejectedByWipLimit(columnName)) {
+                    return false;
+                }
+                for (KanbanColumn other : kanbanBoard) {
+                    if (other.findTask(task.getId()) != null) {
+                        rejectReason.set("Task is already on the board");
+                        return false;
+                    }
+                }
+                if (archive.remove(task.getId())) {
+                    removed.add(task.getId());
+                }
+                
+                column.addTask(task);
+                if (BoardAggregates.isFinished(columnName)) {
+                    task.setFinishedAt(System.currentTimeMillis());
+                }
+                aggregates.add(columnName, task);
+                dueDates.add(columnName, task);
+                recordEvent(taskEvent("RESTORE_TASK", columnName, task), taskTopics(columnName, task));
+                return true;
+            });
+            markRemovedFromArchive(removed);
+            return applied;
+        } finally {
+            archiveLock.unlock();
+        }
+    }
+    
+    /**
+     * Compress and write tasks to the archive ahead of the edit that takes them off the board and publishes them,
+     * or set the reject reason and return null if that fails. Called holding the archive lock.
+     */
+    private static TaskArchive.Batch writeToArchive(Map<String, List<Task>> tasksByColumn, long archivedAt) {
+        try {
+            TaskArchive.Batch batch = archive.prepare(tasksByColumn, archivedAt);
+            archive.write(batch);
+            return batch;
+        } catch (IOException e) {
+            log.error("Error archiving tasks: " + e.getMessage(), e);
+            rejectReason.set("Archive unavailable");
+            return null;
         }
     }
     
     /**
-     * Save the current board state to file
+     * Log that tasks written to the archive are on the board after all, outside the board lock.
+     * If that fails they are only back in the archive after a restart, so it is not undone.
      */
-    private static void saveBoardState() {
+    private static void markRemovedFromArchive(List<String> taskIds) {
         try {
-            FileOutputStream fos = new FileOutputStream(BOARD_FILE);
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(kanbanBoard);
-            oos.close();
-            fos.close();
-            System.out.println("Board state saved to file.");
+            archive.markRemoved(taskIds);
         } catch (IOException e) {
-            System.err.println("Error saving board state: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error removing " + taskIds.size() + " tasks from the archive: " + e.getMessage(), e);
         }
     }
     
     /**
-     * Broadcast a message to all connected clients
+     * Check an add or move into a column against its WIP limit.
+     * Replicas apply whatever their primary decided. Must be called while holding the kanbanBoard lock.
      */
-    private static void broadcastMessage(String message) {
-        synchronized (clientHandlers) {
-            for (ClientHandler handler : clientHandlers) {
-                handler.sendMessage(message);
-            }
+    private static boolean rejectedByWipLimit(String columnName) {
+        if (readOnly || !aggregates.isAtLimit(columnName)) {
+            return false;
+        }
+        if (!WIP_REJECT) {
+            wipLimitExceeded.increment();
+            return false;
         }
+        rejectReason.set("WIP limit reached in " + columnName);
+        return true;
     }
     
     /**
-     * Broadcast the current board state to all clients
+     * Build the message with every aggregate count and WIP limit, sent to joining clients.
+     * Format: AGGREGATES|seq|key=count,... with keys column:name, assignee:name, due:overdue, due:later,
+     * due:none and limit:column
      */
-    private static void broadcastBoardState() {
-        String boardState = serializeBoardState();
-        broadcastMessage("BOARD_UPDATE|" + boardState);
-        
-        // Save the board state to file after each update
-        saveBoardState();
+    private static String aggregatesMessage() {
+        synchronized (kanbanBoard) {
+            return "AGGREGATES|" + aggregatesSeq + "|" + formatAggregates(aggregates.all());
+        }
     }
     
     /**
-     * Serialize the board state to a string for transmission
+     * Build the message with the aggregate counts changed since the last one, or null if none changed.
+     * Format: AGGREGATES_CHANGED|seq|key=count,... where a count of 0 means the key is gone.
+     * Must be called while holding the kanbanBoard lock.
      */
-    private static String serializeBoardState() {
+    private static String aggregatesChangedMessage() {
+        Map<String, Integer> changes = aggregates.drainChanges();
+        if (changes.isEmpty()) {
+            return null;
+        }
+        aggregatesSeq++;
+        return "AGGREGATES_CHANGED|" + aggregatesSeq + "|" + formatAggregates(changes);
+    }
+    
+    private static String formatAggregates(Map<String, Integer> values) {
         StringBuilder sb = new StringBuilder();
-        
-        System.out.println("Serializing board with columns:");
-        synchronized (kanbanBoard) {
-            for (int i = 0; i < kanbanBoard.size(); i++) {
-                KanbanColumn column = kanbanBoard.get(i);
-                System.out.println("- " + column.getName() + " (tasks: " + column.getTasks().size() + ")");
-                
-                sb.append(column.getName()).append(":");
-                
-                List<Task> tasks = column.getTasks();
-                for (int j = 0; j < tasks.size(); j++) {
-                    Task task = tasks.get(j);
-                    sb.append(task.getId()).append(",")
-                      .append(task.getTitle()).append(",")
-                      .append(task.getDescription()).append(",")
-                      .append(task.getAssignee()).append(",")
-                      .append(task.getDueDate());
-                    
-                    if (j < tasks.size() - 1) {
-                        sb.append(";");
-                    }
-                }
-                
-                if (i < kanbanBoard.size() - 1) {
-                    sb.append("|");
-                }
+        for (Map.Entry<String, Integer> value : values.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
             }
+            sb.append(value.getKey()).append('=').append(value.getValue());
         }
-        
-        System.out.println("Serialized board state: " + sb.toString());
         return sb.toString();
     }
     
     /**
-     * Add a new task to the specified column
+     * Wake the due date clock at the next local midnight, or in an hour if that is sooner
      */
-    private static void addTask(String columnName, Task task) {
-        synchronized (kanbanBoard) {
-            for (KanbanColumn column : kanbanBoard) {
-                if (column.getName().equals(columnName)) {
-                    column.addTask(task);
-                    break;
+    private static void scheduleDueDateClock() {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(now.getZone());
+        long delay = Math.min(Duration.between(now, midnight).toMillis(), TimeUnit.HOURS.toMillis(1));
+        boardClock.schedule(KanbanServer::tickDueDates, Math.max(delay, 1), TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Move tasks whose due date has passed into the overdue count, and remind clients of the tasks that
+     * became due or overdue today. Clients with a subscription filter only hear about their columns and assignees.
+     */
+    private static void tickDueDates() {
+        try {
+            String aggregatesMessage;
+            List<String> reminderMessages = new ArrayList<>();
+            List<Set<ClientHandler>> reminderRecipients = new ArrayList<>();
+            synchronized (kanbanBoard) {
+                LocalDate today = LocalDate.now();
+                aggregates.rollOver(today);
+                aggregatesMessage = aggregatesChangedMessage();
+                for (DueDateScheduler.Reminder reminder : dueDates.advance(today)) {
+                    Task task = reminder.getTask();
+                    reminderMessages.add(dueReminderMessage(reminder));
+                    reminderRecipients.add(subscriptions.match(List.of(
+                            SubscriptionIndex.column(reminder.getColumnName()), SubscriptionIndex.assignee(task.getAssignee()))));
+                }
+                if (aggregatesMessage == null && reminderMessages.isEmpty()) {
+                    return;
+                }
+                deliveryLock.lock();
+            }
+            
+            try {
+                if (aggregatesMessage != null) {
+                    broadcastMessage(aggregatesMessage);
+                }
+                for (int i = 0; i < reminderMessages.size(); i++) {
+                    broadcastMessage(reminderMessages.get(i), true);
+                    for (ClientHandler handler : reminderRecipients.get(i)) {
+                        handler.sendMessage(reminderMessages.get(i));
+                    }
                 }
+            } finally {
+                deliveryLock.unlock();
             }
+            dueReminders.add(reminderMessages.size());
+            if (!reminderMessages.isEmpty()) {
+                log.info("Sent " + reminderMessages.size() + " due date reminders");
+            }
+        } catch (RuntimeException e) {
+            log.error("Error checking due dates: " + e.getMessage(), e);
+        } finally {
+            scheduleDueDateClock();
         }
-        
-        broadcastBoardState();
     }
     
     /**
-     * Move a task from one column to another
+     * Build a due date reminder.
+     * Format: TASK_DUE|state|columnName|taskId|dueDate|assignee|title with state due or overdue
+     */
+    private static String dueReminderMessage(DueDateScheduler.Reminder reminder) {
+        Task task = reminder.getTask();
+        return "TASK_DUE|" + reminder.getState() + "|" + reminder.getColumnName() + "|" + task.getId() + "|"
+                + task.getDueDate() + "|" + task.getAssignee() + "|" + task.getTitle();
+    }
+    
+    /**
+     * Apply a board edit under the board lock and broadcast the board if it changed.
+     * Records how long the edit waited for the lock and how long it held it.
      */
-    private static void moveTask(String taskId, String fromColumn, String toColumn) {
-        Task taskToMove = null;
+    private static boolean applyEdit(String command, BooleanSupplier edit) {
+        CommandMetrics timing = commandMetrics.get(command);
+        boolean applied;
+        SnapshotEncoder.BoardSnapshot snapshot = null;
+        String aggregatesMessage = null;
+        Map<ClientHandler, String> filteredMessages = null;
         
+        long waitStart = System.nanoTime();
         synchronized (kanbanBoard) {
-            // Find and remove the task from the source column
-            for (KanbanColumn column : kanbanBoard) {
-                if (column.getName().equals(fromColumn)) {
-                    for (Task task : column.getTasks()) {
-                        if (task.getId().equals(taskId)) {
-                            taskToMove = task;
-                            column.removeTask(task);
-                            break;
-                        }
-                    }
-                    break;
-                }
+            long applyStart = System.nanoTime();
+            timing.lockWait.record(applyStart - waitStart);
+            ServerEvents.CommandEvent event = currentCommandEvent.get();
+            if (event != null) {
+                event.lockWait = applyStart - waitStart;
+            }
+            try {
+                applied = edit.getAsBoolean();
+            } finally {
+                timing.apply.record(System.nanoTime() - applyStart);
             }
+            recordEdit(applied);
             
-            // Add the task to the destination column
-            if (taskToMove != null) {
-                for (KanbanColumn column : kanbanBoard) {
-                    if (column.getName().equals(toColumn)) {
-                        column.addTask(taskToMove);
-                        break;
-                    }
+            if (applied) {
+                // Skip copying the board when every client has a filter
+                if (subscriptions.size() < clientHandlers.size()) {
+                    snapshot = captureBoard();
                 }
+                filteredMessages = filteredEventMessages();
+                aggregatesMessage = aggregatesChangedMessage();
+                deliveryLock.lock();
             }
         }
         
-        broadcastBoardState();
+        if (applied) {
+            try {
+                // Encoded here rather than under the board lock, the delivery lock still keeps broadcasts in order
+                String snapshotMessage = snapshot != null ? snapshotMessage(snapshot, false) : null;
+                broadcastEdit(snapshotMessage, filteredMessages);
+                if (aggregatesMessage != null) {
+                    broadcastMessage(aggregatesMessage);
+                }
+            } finally {
+                deliveryLock.unlock();
+            }
+            
+            // Save the board state to file after each update, from the copy taken for the broadcast if there is one
+            saveBoardState(snapshot);
+        }
+        return applied;
     }
     
     /**
-     * Update an existing task
+     * Replace the board with a snapshot from the primary, taking on its epoch and version.
+     * Called by the replication follower.
      */
-    private static void updateTask(String columnName, Task updatedTask) {
+    static void installReplicatedSnapshot(long epoch, long version, String boardData) throws IOException {
+        List<KanbanColumn> columns = parseBoardState(boardData);
         synchronized (kanbanBoard) {
-            for (KanbanColumn column : kanbanBoard) {
-                if (column.getName().equals(columnName)) {
-                    for (int i = 0; i < column.getTasks().size(); i++) {
-                        Task task = column.getTasks().get(i);
-                        if (task.getId().equals(updatedTask.getId())) {
-                            column.getTasks().set(i, updatedTask);
-                            break;
-                        }
-                    }
-                    break;
-                }
+            kanbanBoard.clear();
+            kanbanBoard.addAll(columns);
+            stampFinishedTasks();
+            aggregates.rebuild(kanbanBoard);
+            aggregates.drainChanges();
+            dueDates.rebuild(kanbanBoard);
+            serverEpoch = epoch;
+            boardVersion = version;
+            eventLog.reset(version);
+            
+            // Followers of this replica need the snapshot too, since the events before it are gone
+            ReplicationSource source = replicationSource;
+            if (source != null) {
+                source.publish(boardSnapshotMessage(true));
             }
         }
-        
+        log.info("Installed replicated board at version " + version);
         broadcastBoardState();
+        broadcastMessage(aggregatesMessage());
     }
     
     /**
-     * Delete a task from the board
+     * Apply an event from the primary through the same edit code the primary used.
+     * Returns false if the event does not produce the expected version, so the follower can resync.
      */
-    private static void deleteTask(String columnName, String taskId) {
-        synchronized (kanbanBoard) {
-            for (KanbanColumn column : kanbanBoard) {
-                if (column.getName().equals(columnName)) {
-                    column.getTasks().removeIf(task -> task.getId().equals(taskId));
-                    break;
-                }
-            }
+    static boolean applyReplicatedEvent(long version, String event) {
+        // Only the follower thread edits the board of a replica, so the version cannot move underneath us
+        if (version != boardVersion + 1) {
+            return false;
         }
         
-        broadcastBoardState();
+        String[] parts = event.split("\\|", -1);
+        switch (parts[0]) {
+            case "ADD_TASK":
+                // Format: ADD_TASK|columnName|taskId|title|description|assignee|dueDate
+                return addTask(parts[1], new Task(parts[2], parts[3], parts[4], parts[5], parts[6]));
+            case "MOVE_TASK":
+                // Format: MOVE_TASK|taskId|fromColumn|toColumn
+                return moveTask(parts[1], parts[2], parts[3]);
+            case "UPDATE_TASK":
+                // Format: UPDATE_TASK|columnName|taskId|title|description|assignee|dueDate
+                return updateTask(parts[1], new Task(parts[2], parts[3], parts[4], parts[5], parts[6]));
+            case "DELETE_TASK":
+                // Format: DELETE_TASK|columnName|taskId
+                return deleteTask(parts[1], parts[2]);
+            case "CLEAR_COMPLETED":
+                return clearCompletedTasks();
+            case "ARCHIVE_TASKS":
+                // Format: ARCHIVE_TASKS|columnName|taskId,taskId,...
+                return archiveTasks(parts[1], new HashSet<>(Arrays.asList(parts[2].split(","))), 0);
+            case "RESTORE_TASK":
+                // Format: RESTORE_TASK|columnName|taskId|title|description|assignee|dueDate
+                return restoreTask(parts[2], parts[1], new Task(parts[2], parts[3], parts[4], parts[5], parts[6]));
+            default:
+                return false;
+        }
     }
     
     /**
-     * Clear all tasks from the "Done" and "Completed" columns
+     * Turn a read-only replica into a primary.
+     * Starts a new epoch, since the old primary may have applied edits this replica never received,
+     * and sends every client the board under it.
      */
-    private static void clearCompletedTasks() {
+    static void promote() {
         synchronized (kanbanBoard) {
-            for (KanbanColumn column : kanbanBoard) {
-                if (column.getName().equals("Done") || column.getName().equals("Completed")) {
-                    column.getTasks().clear();
-                }
-            }
+            readOnly = false;
+            serverEpoch = System.currentTimeMillis();
+            eventLog.reset(boardVersion);
         }
-        
+        log.info("Promoted to primary at board version " + boardVersion);
         broadcastBoardState();
     }
     
@@ -276,32 +1458,67 @@ public class KanbanServer {
      */
     private static class ClientHandler extends Thread {
         private Socket socket;
-        private PrintWriter out;
+        private volatile PrintWriter out;
+        private final ReentrantLock writeLock = new ReentrantLock();
         private BufferedReader in;
         private String username;
         
+        // Heartbeat state, read by the heartbeat wheel thread: when the unanswered PING was written (0 if none),
+        // whether one is waiting for the pinger, and when the write in progress started (0 if none)
+        private volatile long lastActivity = System.currentTimeMillis();
+        private volatile long pingSentAt;
+        private volatile boolean pingQueued;
+        private volatile long writeStartedAt;
+        private volatile TimerWheel.Timeout<ClientHandler> heartbeat;
+        
+        // Set by SUBSCRIBE: a filtered client gets matching board events instead of snapshots,
+        // and its board only holds the tasks inside the filter
+        private volatile boolean filtered;
+        private volatile Set<String> filter = Collections.emptySet();
+        private volatile boolean chatEnabled = true;
+        
+        // The command being processed and when it arrived, for the command trace, only used on this handler thread
+        private final int clientId = nextClientId.incrementAndGet();
+        private long commandArrival;
+        private String currentMessage;
+        private boolean commandRecorded;
+        
         public ClientHandler(Socket socket) {
             this.socket = socket;
         }
         
         @Override
         public void run() {
+            heartbeat = heartbeatWheel.schedule(this, PING_INTERVAL_MS);
+            
             try {
                 // Set up input and output streams
-                out = new PrintWriter(socket.getOutputStream(), true);
+                out = new PrintWriter(new CountingOutputStream(socket.getOutputStream()), true);
                 in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
                 
                 // Get username from client
-                username = in.readLine().split("\\|")[1];
-                System.out.println("User connected: " + username);
+                // Format: LOGIN|username or LOGIN|username|epoch|lastSeenVersion when reconnecting
+                String loginLine = in.readLine();
+                String[] login = loginLine.split("\\|");
+                username = login[1];
+                log.info("User connected: " + username);
+                CommandTrace.Recorder trace = recorder;
+                if (trace != null) {
+                    trace.connect(trace.now(), clientId, loginLine);
+                }
                 
                 // Add client to the map
                 synchronized (clients) {
                     clients.put(username, this);
                 }
                 
-                // Send the current board state to the new client
-                sendMessage("BOARD_UPDATE|" + serializeBoardState());
+                // Send the board to the new client, or only the missed events if it is reconnecting
+                if (login.length >= 4) {
+                    sendBoard(Long.parseLong(login[2]), Long.parseLong(login[3]));
+                } else {
+                    sendBoard(-1, -1);
+                }
+                sendMessage(aggregatesMessage());
                 
                 // Notify all clients about the new user
                 broadcastMessage("USER_JOINED|" + username);
@@ -309,30 +1526,34 @@ public class KanbanServer {
                 // Process client messages
                 String inputLine;
                 while ((inputLine = in.readLine()) != null) {
+                    lastActivity = System.currentTimeMillis();
+                    pingSentAt = 0;
                     processClientMessage(inputLine);
                 }
             } catch (IOException e) {
-                System.err.println("Error handling client: " + e.getMessage());
+                log.warn("Error handling client: " + e.getMessage());
             } finally {
-                // Clean up when client disconnects
-                try {
-                    if (socket != null) socket.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                // Clean up when client disconnects or is reaped by the heartbeat wheel
+                heartbeat.cancel();
+                closeSocket();
                 
-                // Remove client from collections
+                // Remove client from collections, unless the user has already reconnected on a new handler
                 clientHandlers.remove(this);
+                subscriptions.unsubscribe(this);
                 if (username != null) {
                     synchronized (clients) {
-                        clients.remove(username);
+                        clients.remove(username, this);
+                    }
+                    CommandTrace.Recorder trace = recorder;
+                    if (trace != null) {
+                        trace.disconnect(trace.now(), clientId);
                     }
                     
                     // Notify all clients about the user leaving
                     broadcastMessage("USER_LEFT|" + username);
                 }
                 
-                System.out.println("Client disconnected: " + username);
+                log.info("Client disconnected: " + username);
             }
         }
         
@@ -340,12 +1561,39 @@ public class KanbanServer {
      * Process a message from the client
      */
     private void processClientMessage(String message) {
-        String[] parts = message.split("\\|");
+        ServerEvents.CommandEvent event = new ServerEvents.CommandEvent();
+        event.begin();
+        long start = System.nanoTime();
+        CommandTrace.Recorder trace = recorder;
+        if (trace != null) {
+            commandArrival = trace.now();
+            currentMessage = message;
+            commandRecorded = false;
+        }
+        
+        // Keep trailing empty fields, e.g. a task without a due date
+        String[] parts = message.split("\\|", -1);
         String command = parts[0];
+        CommandMetrics timing = commandMetrics.get(command);
+        if (timing != null) {
+            timing.parse.record(System.nanoTime() - start);
+        }
+        currentCommandEvent.set(event);
         
-        switch (command) {
+        // Board edits may end with an optional client sequence number, answered with ACK|seq|version or NACK|seq|reason
+        // A replica only serves reads, so edits and chat sent to it are turned away
+        boolean replicaRejects = readOnly && (EDIT_SEQ_INDEX.containsKey(command) || command.equals("CHAT_MESSAGE"));
+        switch (replicaRejects ? "READ_ONLY" : command) {
+            case "READ_ONLY":
+                // Format: any board edit or CHAT_MESSAGE, edits are answered NACK|seq|Read-only replica
+                if (EDIT_SEQ_INDEX.containsKey(command)) {
+                    acknowledge(parts, EDIT_SEQ_INDEX.get(command), false, "Read-only replica");
+                }
+                break;
+                
+
             case "ADD_TASK":
-                // Format: ADD_TASK|columnName|taskId|title|description|assignee|dueDate
+                // Format: ADD_TASK|columnName|taskId|title|description|assignee|dueDate[|seq]
                 String columnName = parts[1];
                 Task newTask = new Task(
                     parts[2], // id
@@ -354,16 +1602,16 @@ public class KanbanServer {
                     parts[5], // assignee
                     parts[6]  // dueDate
                 );
-                addTask(columnName, newTask);
+                acknowledge(parts, 7, addTask(columnName, newTask), "Column not found");
                 break;
                 
             case "MOVE_TASK":
-                // Format: MOVE_TASK|taskId|fromColumn|toColumn
-                moveTask(parts[1], parts[2], parts[3]);
+                // Format: MOVE_TASK|taskId|fromColumn|toColumn[|seq]
+                acknowledge(parts, 4, moveTask(parts[1], parts[2], parts[3]), "Task or column not found");
                 break;
                 
             case "UPDATE_TASK":
-                // Format: UPDATE_TASK|columnName|taskId|title|description|assignee|dueDate
+                // Format: UPDATE_TASK|columnName|taskId|title|description|assignee|dueDate[|seq]
                 Task updatedTask = new Task(
                     parts[2], // id
                     parts[3], // title
@@ -371,31 +1619,376 @@ public class KanbanServer {
                     parts[5], // assignee
                     parts[6]  // dueDate
                 );
-                updateTask(parts[1], updatedTask);
+                acknowledge(parts, 7, updateTask(parts[1], updatedTask), "Task not found");
                 break;
                 
             case "DELETE_TASK":
-                // Format: DELETE_TASK|columnName|taskId
-                deleteTask(parts[1], parts[2]);
+                // Format: DELETE_TASK|columnName|taskId[|seq]
+                acknowledge(parts, 3, deleteTask(parts[1], parts[2]), "Task not found");
                 break;
                 
             case "CLEAR_COMPLETED":
-                // Format: CLEAR_COMPLETED
-                clearCompletedTasks();
+                // Format: CLEAR_COMPLETED[|seq]
+                acknowledge(parts, 1, clearCompletedTasks(), null);
+                break;
+                
+            case "RESTORE_TASK":
+                // Format: RESTORE_TASK|taskId[|seq]
+                acknowledge(parts, 2, restoreTask(parts[1], null, null), "Task not in archive");
+                break;
+                
+            case "PONG":
+                // Format: PONG, activity has already been recorded
+                break;
+                
+            case "REFRESH":
+                // Format: REFRESH
+                sendMessage(filtered ? snapshotMessage(captureBoard(filter), false) : boardSnapshotMessage(false));
+                break;
+                
+            case "GET_TASK":
+                // Format: GET_TASK|taskId
+                sendMessage(taskDetailsMessage(parts[1]));
                 break;
                 
             case "CHAT_MESSAGE":
-                // Format: CHAT_MESSAGE|message
-                broadcastMessage("CHAT|" + username + "|" + parts[1]);
+                // Format: CHAT_MESSAGE|message (the message itself may contain |), dropped if the sender is flooding
+                if (!chatService.post(username, message.split("\\|", 2)[1])) {
+                    chatDropped.increment();
+                }
+                break;
+                
+            case "CHAT_HISTORY":
+                // Format: CHAT_HISTORY|cursor|limit, where cursor 0 means the newest messages
+                sendChatHistory(Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+                break;
+                
+            case "ARCHIVE_SEARCH":
+                // Format: ARCHIVE_SEARCH|limit|query (the query itself may contain |)
+                sendArchiveSearch(message.split("\\|", 3)[2], Math.max(0, Math.min(Integer.parseInt(parts[1]), ARCHIVE_SEARCH_LIMIT)));
+                break;
+                
+            case "SUBSCRIBE":
+                // Format: SUBSCRIBE|columns|assignees|chat, with comma-separated columns and assignees
+                // (both empty for the whole board) and chat on or off
+                subscribe(parts[1], parts[2], !parts[3].equals("off"));
                 break;
         }
+        
+        if (timing != null) {
+            timing.total.record(System.nanoTime() - start);
+        }
+        
+        // Edits were recorded under the board lock, heartbeats are not worth replaying
+        if (trace != null && !commandRecorded && !command.equals("PONG")) {
+            trace.command(commandArrival, clientId, 0, message);
+        }
+        
+        currentCommandEvent.remove();
+        event.end();
+        if (event.shouldCommit()) {
+            event.command = command;
+            event.username = username;
+            event.taskId = taskIdOf(parts);
+            event.commit();
+        }
+        }
+        
+        /**
+         * Get the task a command refers to, or null if it is not about a single task
+         */
+        private String taskIdOf(String[] parts) {
+            switch (parts[0]) {
+                case "ADD_TASK":
+                case "UPDATE_TASK":
+                case "DELETE_TASK":
+                    return parts.length > 2 ? parts[2] : null;
+                case "MOVE_TASK":
+                case "GET_TASK":
+                case "RESTORE_TASK":
+                    return parts.length > 1 ? parts[1] : null;
+                default:
+                    return null;
+            }
+        }
+        
+        /**
+         * Confirm or reject a board edit if the client tagged it with a sequence number.
+         * The board broadcast for an applied edit is always sent before the ACK.
+         */
+        private void acknowledge(String[] parts, int seqIndex, boolean applied, String reason) {
+            String specificReason = rejectReason.get();
+            if (specificReason != null) {
+                rejectReason.remove();
+                reason = specificReason;
+            }
+            if (!applied) {
+                commandMetrics.get(parts[0]).rejected.increment();
+                ServerEvents.CommandEvent event = currentCommandEvent.get();
+                if (event != null) {
+                    event.applied = false;
+                }
+            }
+            if (parts.length <= seqIndex) {
+                return;
+            }
+            
+            String seq = parts[seqIndex];
+            if (applied) {
+                sendMessage("ACK|" + seq + "|" + currentVersion());
+            } else {
+                sendMessage("NACK|" + seq + "|" + reason);
+            }
+        }
+        
+        /**
+         * Replace this client's subscription filter.
+         * Events matching any of the columns or assignees are sent; a client dropping its filter
+         * has missed the other events and is sent the whole board again.
+         */
+        private void subscribe(String columns, String assignees, boolean chat) {
+            Set<String> topics = new LinkedHashSet<>();
+            for (String column : columns.split(",")) {
+                if (!column.isEmpty()) {
+                    topics.add(SubscriptionIndex.column(column));
+                }
+            }
+            for (String assignee : assignees.split(",")) {
+                if (!assignee.isEmpty()) {
+                    topics.add(SubscriptionIndex.assignee(assignee));
+                }
+            }
+            
+            // The board a client starts from is the tasks in its new filter, or the whole board without one.
+            // Taking the delivery lock before the board lock is released keeps it in order with the edits.
+            boolean wasFiltered = filtered;
+            chatEnabled = chat;
+            SnapshotEncoder.BoardSnapshot snapshot = null;
+            synchronized (kanbanBoard) {
+                subscriptions.subscribe(this, topics);
+                filter = new HashSet<>(topics);
+                filtered = !topics.isEmpty();
+                if (filtered || wasFiltered) {
+                    snapshot = filtered ? captureBoard(filter) : captureBoard();
+                    deliveryLock.lock();
+                }
+            }
+            if (snapshot != null) {
+                try {
+                    sendMessage(snapshotMessage(snapshot, false));
+                } finally {
+                    deliveryLock.unlock();
+                }
+            }
+        }
+        
+        /**
+         * Send a page of chat history to this client.
+         * Replies with CHAT_HISTORY_ITEM|seq|username|message lines followed by
+         * CHAT_HISTORY_END|nextCursor, where a next cursor of 0 means there is nothing older.
+         */
+        private void sendChatHistory(long cursor, int limit) {
+            List<ChatService.ChatMessage> page = chatService.page(cursor, limit);
+            for (ChatService.ChatMessage chat : page) {
+                sendMessage("CHAT_HISTORY_ITEM|" + chat.getSeq() + "|" + chat.getUsername() + "|" + chat.getText());
+            }
+            
+            long nextCursor = page.isEmpty() ? 0 : page.get(0).getSeq();
+            if (nextCursor > 0 && chatService.page(nextCursor, 1).isEmpty()) {
+                nextCursor = 0;
+            }
+            sendMessage("CHAT_HISTORY_END|" + nextCursor);
+        }
+        
+        /**
+         * Send the archived tasks matching a search to this client, most recently archived first.
+         * Replies with ARCHIVED_TASK|taskId|columnName|archivedAt|assignee|dueDate|title lines followed by
+         * ARCHIVE_SEARCH_END|count, or ARCHIVE_SEARCH_END|-1 if the archive cannot be read.
+         */
+        private void sendArchiveSearch(String query, int limit) {
+            List<TaskArchive.ArchivedTask> matches;
+            try {
+                matches = archive.search(query, limit);
+            } catch (IOException e) {
+                log.error("Error searching the archive: " + e.getMessage(), e);
+                sendMessage("ARCHIVE_SEARCH_END|-1");
+                return;
+            }
+            
+            for (TaskArchive.ArchivedTask archived : matches) {
+                Task task = archived.getTask();
+                sendMessage("ARCHIVED_TASK|" + task.getId() + "|" + archived.getColumnName() + "|" + archived.getArchivedAt()
+                        + "|" + task.getAssignee() + "|" + task.getDueDate() + "|" + task.getTitle());
+            }
+            sendMessage("ARCHIVE_SEARCH_END|" + matches.size());
         }
         
         /**
          * Send a message to this client
          */
         public void sendMessage(String message) {
-            out.println(message);
+            // Broadcasts can reach a handler before its streams are set up
+            if (out == null) {
+                return;
+            }
+            
+            writeLock.lock();
+            try {
+                write(message);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        /**
+         * Send a PING unless another write is in progress, on the heartbeat pinger thread.
+         * If one is, the wheel tries again after the PONG timeout, or reaps the client if that write is stuck.
+         */
+        private void sendPing() {
+            pingQueued = false;
+            if (out == null || !writeLock.tryLock()) {
+                return;
+            }
+            try {
+                // Stamped before writing, so a PONG arriving straight away clears it
+                pingSentAt = System.currentTimeMillis();
+                write("PING");
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        
+        /**
+         * Write a message while holding the write lock, recording when the write started for the heartbeat wheel
+         */
+        private void write(String message) {
+            writeStartedAt = System.currentTimeMillis();
+            boolean failed;
+            try {
+                out.println(message);
+                failed = out.checkError();
+            } finally {
+                writeStartedAt = 0;
+            }
+            
+            // A failed write means the connection is dead, so stop waiting for the reader to notice
+            if (failed) {
+                closeSocket();
+            }
+        }
+        
+        /**
+         * Send the board to a joining client: only the missed events if it is reconnecting within the
+         * event log, otherwise the snapshot file followed by the events since the file was written
+         */
+        private void sendBoard(long epoch, long version) throws IOException {
+            List<String> missed = missedEventMessages(epoch, version, false);
+            if (missed == null) {
+                try (SnapshotFile.Reader snapshot = openSnapshotFile()) {
+                    sendFile(snapshot.getChannel());
+                    missed = missedEventMessages(snapshot.getEpoch(), snapshot.getVersion(), false);
+                }
+                
+                // Only if a burst of edits pushed the file's version out of the log while it was being sent
+                if (missed == null) {
+                    missed = Collections.singletonList(boardSnapshotMessage(false));
+                }
+            }
+            
+            for (String message : missed) {
+                sendMessage(message);
+            }
+        }
+        
+        /**
+         * Send a file's bytes straight to the socket, without copying them through the heap.
+         * Holds the write lock so no other message is written into the middle of it.
+         */
+        private void sendFile(FileChannel file) throws IOException {
+            writeLock.lock();
+            writeStartedAt = System.currentTimeMillis();
+            try {
+                out.flush();
+                long size = file.size();
+                long position = 0;
+                while (position < size) {
+                    position += file.transferTo(position, size - position, socket.getChannel());
+                }
+                bytesSent.add(size);
+            } finally {
+                writeStartedAt = 0;
+                writeLock.unlock();
+            }
+            snapshotFileSends.increment();
+        }
+        
+        /**
+         * Close the connection. The blocked reader then fails and runs the cleanup in run().
+         */
+        private void closeSocket() {
+            try {
+                if (socket != null) socket.close();
+            } catch (IOException e) {
+                log.warn("Error closing client socket: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Timings for one client command.
+     * Board edits also record how long they waited for the board lock and how long they held it.
+     */
+    private static class CommandMetrics {
+        private final LatencyHistogram parse;
+        private final LatencyHistogram total;
+        private final LatencyHistogram lockWait;
+        private final LatencyHistogram apply;
+        private final MetricsRegistry.Counter rejected;
+        
+        CommandMetrics(String command, boolean boardEdit) {
+            parse = metrics.histogram("command." + command + ".parse");
+            total = metrics.histogram("command." + command + ".total");
+            lockWait = boardEdit ? metrics.histogram("command." + command + ".lockWait") : null;
+            apply = boardEdit ? metrics.histogram("command." + command + ".apply") : null;
+            rejected = boardEdit ? metrics.counter("command." + command + ".rejected") : null;
+        }
+    }
+    
+    /**
+     * A task moved or updated by an edit, with its column and the task it was before the edit
+     */
+    private static class TaskChange {
+        private final String fromColumn;
+        private final Task previous;
+        private final String toColumn;
+        private final Task task;
+        
+        TaskChange(String fromColumn, Task previous, String toColumn, Task task) {
+            this.fromColumn = fromColumn;
+            this.previous = previous;
+            this.toColumn = toColumn;
+            this.task = task;
+        }
+    }
+    
+    /**
+     * Counts the bytes written to a client socket into the bytes sent counter
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            bytesSent.increment();
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            bytesSent.add(len);
         }
     }
 }
@@ -0,0 +1,107 @@
+package main.java.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * Each power of two is split into 32 sub-buckets, so any recorded value is reported within
+ * about 3% of its true value while the whole histogram stays a fixed 15 KB array.
+ * Recording is a couple of atomic increments and safe from any thread.
+ */
+public class LatencyHistogram implements MetricsRegistry.HistogramMBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Get the value below which the given fraction of recorded values fall, in nanoseconds
+     */
+    public long percentile(double fraction) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucketOf(long value) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        if (highestBit < SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long total = count.sum();
+        return total == 0 ? 0 : sum.sum() / (double) total / 1000.0;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentile(0.50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentile(0.90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentile(0.99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentile(0.999) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / 1000.0;
+    }
+}
@@ -0,0 +1,117 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process registry of counters, gauges and latency histograms.
+ * Every metric is published as a JMX MBean under the registry's domain as soon as it is created,
+ * e.g. kanban:type=Histogram,name=command.MOVE_TASK.apply, so any JMX client (jconsole, a
+ * monitoring agent) can read it without extra dependencies. Look metrics up once and keep them,
+ * since the lookups by name are not meant for the hot path.
+ */
+public class MetricsRegistry {
+    private static final Log log = Log.get(MetricsRegistry.class);
+
+    private final String domain;
+    private final MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+    public MetricsRegistry(String domain) {
+        this.domain = domain;
+    }
+
+    public Counter counter(String name) {
+        return (Counter) metrics.computeIfAbsent("Counter:" + name, key -> register("Counter", name, new Counter(), CounterMBean.class));
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return (LatencyHistogram) metrics.computeIfAbsent("Histogram:" + name,
+                key -> register("Histogram", name, new LatencyHistogram(), HistogramMBean.class));
+    }
+
+    /**
+     * Register a gauge whose value is read from the supplier whenever it is polled
+     */
+    public void gauge(String name, LongSupplier value) {
+        metrics.computeIfAbsent("Gauge:" + name, key -> register("Gauge", name, new Gauge(value), GaugeMBean.class));
+    }
+
+    private <T> T register(String type, String name, T metric, Class<? super T> mbeanInterface) {
+        try {
+            ObjectName objectName = new ObjectName(domain + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (!mbeanServer.isRegistered(objectName)) {
+                mbeanServer.registerMBean(new StandardMBean(metric, mbeanInterface), objectName);
+            }
+        } catch (JMException e) {
+            log.warn("Could not publish metric " + name + ": " + e.getMessage());
+        }
+        return metric;
+    }
+
+    public interface CounterMBean {
+        long getCount();
+    }
+
+    public interface GaugeMBean {
+        long getValue();
+    }
+
+    public interface HistogramMBean {
+        long getCount();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP90Micros();
+
+        double getP99Micros();
+
+        double getP999Micros();
+
+        double getMaxMicros();
+    }
+
+    /**
+     * Lock-free counter, cheap to increment from many threads at once
+     */
+    public static class Counter implements CounterMBean {
+        private final LongAdder count = new LongAdder();
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+    }
+
+    private static class Gauge implements GaugeMBean {
+        private final LongSupplier value;
+
+        Gauge(LongSupplier value) {
+            this.value = value;
+        }
+
+        @Override
+        public long getValue() {
+            return value.getAsLong();
+        }
+    }
+}
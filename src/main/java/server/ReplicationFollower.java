@@ -0,0 +1,205 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+
+/**
+ * Follower side of replication: keeps this server's board identical to a primary's by applying
+ * its change stream, while the server answers read-only clients. Events are replayed through the
+ * same edit code as on the primary and must land on the same board version; on any gap the
+ * follower reconnects and asks for a full snapshot.
+ * Replication lag is published as the replication.lagMillis gauge. The follower can be promoted
+ * to a primary through the kanban:type=Replication MBean, e.g. from jconsole.
+ */
+public class ReplicationFollower extends Thread {
+    private static final Log log = Log.get(ReplicationFollower.class);
+
+    private static final long RECONNECT_DELAY_MS = 1000;
+    private static final long MAX_RECONNECT_DELAY_MS = 30000;
+
+    private final String host;
+    private final int port;
+
+    private volatile Socket socket;
+    private volatile boolean connected;
+    private volatile boolean promoting;
+
+    // Primary time of the last heartbeat, and how old it was when it was applied
+    private volatile long lastHeartbeatTime = System.currentTimeMillis();
+    private volatile long lastHeartbeatDelay;
+
+    public ReplicationFollower(String host, int port, MetricsRegistry metrics) {
+        super("replication-follower");
+        this.host = host;
+        this.port = port;
+        setDaemon(true);
+
+        metrics.gauge("replication.lagMillis", this::lagMillis);
+        metrics.gauge("replication.connected", () -> connected ? 1 : 0);
+        registerControl();
+    }
+
+    @Override
+    public void run() {
+        long delay = RECONNECT_DELAY_MS;
+        boolean resync = false;
+        while (!promoting) {
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                resync = follow(connection, resync);
+                delay = RECONNECT_DELAY_MS;
+            } catch (IOException e) {
+                if (!promoting) {
+                    log.warn("Replication from " + host + ":" + port + " failed: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            if (!promoting) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    // Interrupted by promote()
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+
+        // Promotion runs here, after the last replicated event has been applied
+        Thread.interrupted();
+        KanbanServer.promote();
+        lastHeartbeatDelay = 0;
+    }
+
+    /**
+     * Apply the primary's stream until it ends.
+     * Returns true if the follower lost track of the primary's versions and needs a full snapshot.
+     */
+    private boolean follow(Socket connection, boolean resync) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream()));
+        PrintWriter out = new PrintWriter(connection.getOutputStream(), true);
+
+        // Format: REPLICATE|epoch|lastAppliedVersion, with epoch 0 asking for a full snapshot
+        long epoch = resync ? 0 : KanbanServer.serverEpoch();
+        out.println("REPLICATE|" + epoch + "|" + KanbanServer.currentVersion());
+        connected = true;
+        log.info("Following primary at " + host + ":" + port + " from version " + KanbanServer.currentVersion());
+
+        String message;
+        while ((message = in.readLine()) != null) {
+            String[] parts = message.split("\\|", 4);
+            switch (parts[0]) {
+                case "BOARD_UPDATE":
+                    // Format: BOARD_UPDATE|epoch|version|boardData
+                    KanbanServer.installReplicatedSnapshot(Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]);
+                    break;
+
+                case "BOARD_EVENT":
+                    // Format: BOARD_EVENT|epoch|version|event
+                    if (!KanbanServer.applyReplicatedEvent(Long.parseLong(parts[2]), parts[3])) {
+                        log.warn("Replicated event " + parts[2] + " does not apply at version "
+                                + KanbanServer.currentVersion() + ", resyncing");
+                        return true;
+                    }
+                    break;
+
+                case "HEARTBEAT":
+                    // Format: HEARTBEAT|version|primaryTimeMillis
+                    long sent = Long.parseLong(parts[2]);
+                    lastHeartbeatDelay = Math.max(0, System.currentTimeMillis() - sent);
+                    lastHeartbeatTime = sent;
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * How far this board trails the primary, in milliseconds.
+     * Measured by how long heartbeats take to reach the board, and growing from the last heartbeat
+     * if they stop arriving. Assumes the two servers share a clock, as they do on one host.
+     */
+    long lagMillis() {
+        if (promoting) {
+            return 0;
+        }
+        long silence = System.currentTimeMillis() - lastHeartbeatTime - ReplicationSource.HEARTBEAT_INTERVAL_MS;
+        return Math.max(lastHeartbeatDelay, silence);
+    }
+
+    /**
+     * Stop following and start accepting edits
+     */
+    public void promote() {
+        if (promoting) {
+            return;
+        }
+        log.info("Promoting replica to primary");
+        promoting = true;
+        interrupt();
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Error closing replication socket: " + e.getMessage());
+            }
+        }
+    }
+
+    private void registerControl() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new StandardMBean(new Control(), ReplicationMBean.class),
+                    new ObjectName("kanban:type=Replication"));
+        } catch (JMException e) {
+            log.warn("Could not publish replication controls: " + e.getMessage());
+        }
+    }
+
+    public interface ReplicationMBean {
+        String getPrimary();
+
+        boolean isConnected();
+
+        boolean isPromoted();
+
+        long getLagMillis();
+
+        void promote();
+    }
+
+    private class Control implements ReplicationMBean {
+        @Override
+        public String getPrimary() {
+            return host + ":" + port;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+
+        @Override
+        public boolean isPromoted() {
+            return promoting;
+        }
+
+        @Override
+        public long getLagMillis() {
+            return lagMillis();
+        }
+
+        @Override
+        public void promote() {
+            ReplicationFollower.this.promote();
+        }
+    }
+}
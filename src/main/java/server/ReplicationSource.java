@@ -0,0 +1,175 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Primary side of replication: streams every board change, in version order, to follower servers.
+ * Followers connect over a local socket and say where they are; they are sent the events they
+ * missed (or a full snapshot) and then every new event as it is recorded, plus a heartbeat they
+ * use to measure replication lag. Each follower has its own bounded queue and writer thread, so a
+ * slow follower never holds up edits; one that falls too far behind is disconnected and catches
+ * up again when it reconnects.
+ */
+public class ReplicationSource {
+    private static final Log log = Log.get(ReplicationSource.class);
+
+    static final long HEARTBEAT_INTERVAL_MS = 500;
+    private static final int FOLLOWER_QUEUE_CAPACITY = 10000;
+
+    private final Set<Follower> followers = new CopyOnWriteArraySet<>();
+
+    public ReplicationSource(MetricsRegistry metrics) {
+        metrics.gauge("replication.followers", followers::size);
+        metrics.gauge("replication.backlog", () -> {
+            int backlog = 0;
+            for (Follower follower : followers) {
+                backlog = Math.max(backlog, follower.queue.size());
+            }
+            return backlog;
+        });
+    }
+
+    /**
+     * Start accepting followers on the loopback interface
+     */
+    public void start(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        Thread acceptor = new Thread(() -> acceptLoop(serverSocket), "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        Thread heartbeat = new Thread(this::heartbeatLoop, "replication-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+
+        log.info("Replication stream available on port " + port);
+    }
+
+    /**
+     * Send a message to every follower.
+     * Must be called while holding the board lock, so followers see changes in version order.
+     */
+    void publish(String message) {
+        for (Follower follower : followers) {
+            follower.enqueue(message);
+        }
+    }
+
+    private void acceptLoop(ServerSocket serverSocket) {
+        while (true) {
+            try {
+                Socket socket = serverSocket.accept();
+                new Follower(socket).start();
+            } catch (IOException e) {
+                log.error("Replication acceptor stopped: " + e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Periodically send HEARTBEAT|version|primaryTimeMillis, queued behind any pending events
+     */
+    private void heartbeatLoop() {
+        while (true) {
+            try {
+                Thread.sleep(HEARTBEAT_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            KanbanServer.readBoard(board -> {
+                publish("HEARTBEAT|" + KanbanServer.currentVersion() + "|" + System.currentTimeMillis());
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Connection to one follower, with the queue of messages still to be written to it
+     */
+    private class Follower extends Thread {
+        private final Socket socket;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(FOLLOWER_QUEUE_CAPACITY);
+
+        Follower(Socket socket) {
+            super("replication-" + socket.getPort());
+            this.socket = socket;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+
+                // Format: REPLICATE|epoch|lastAppliedVersion, with epoch 0 asking for a full snapshot
+                String[] request = in.readLine().split("\\|");
+                long epoch = Long.parseLong(request[1]);
+                long version = Long.parseLong(request[2]);
+
+                // Queue the catch-up and start receiving new events under one hold of the board lock, so none fall in between
+                KanbanServer.readBoard(board -> {
+                    for (String message : KanbanServer.catchUpMessages(epoch, version, true)) {
+                        enqueue(message);
+                    }
+                    followers.add(this);
+                    return null;
+                });
+                log.info("Follower connected from " + socket.getRemoteSocketAddress() + " at version " + version);
+
+                List<String> batch = new ArrayList<>();
+                while (!socket.isClosed()) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch);
+                    for (String message : batch) {
+                        out.write(message);
+                        out.write('\n');
+                    }
+                    out.flush();
+                    batch.clear();
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Follower connection failed: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                followers.remove(this);
+                close();
+                log.info("Follower disconnected: " + socket.getRemoteSocketAddress());
+            }
+        }
+
+        /**
+         * Queue a message without blocking. A follower whose queue is full is cut off and resyncs on reconnect.
+         */
+        void enqueue(String message) {
+            if (!queue.offer(message)) {
+                log.warn("Follower " + socket.getRemoteSocketAddress() + " fell too far behind, disconnecting");
+                followers.remove(this);
+                close();
+                interrupt();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.warn("Error closing follower socket: " + e.getMessage());
+            }
+        }
+    }
+}
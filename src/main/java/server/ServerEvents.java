@@ -0,0 +1,73 @@
+package main.java.server;
+
+import jdk.jfr.*;
+
+/**
+ * Java Flight Recorder events emitted by the server, so latency spikes can be lined up with
+ * GC and I/O in a recording. Stack traces are off and fields are only filled in when an event
+ * will actually be recorded, so the events are cheap enough to leave enabled in production:
+ * java -XX:StartFlightRecording=filename=kanban.jfr ... main.java.server.KanbanServer
+ */
+final class ServerEvents {
+    private ServerEvents() {
+    }
+
+    @Name("kanban.Command")
+    @Label("Command")
+    @Category("Kanban")
+    @Description("A client command processed by the server")
+    @StackTrace(false)
+    static class CommandEvent extends Event {
+        @Label("Command")
+        String command;
+
+        @Label("User")
+        String username;
+
+        @Label("Task ID")
+        String taskId;
+
+        @Label("Applied")
+        @Description("False if a board edit was rejected")
+        boolean applied = true;
+
+        @Label("Lock Wait")
+        @Description("Time spent waiting for the board lock")
+        @Timespan(Timespan.NANOSECONDS)
+        long lockWait;
+    }
+
+    @Name("kanban.Broadcast")
+    @Label("Broadcast")
+    @Category("Kanban")
+    @Description("A message sent to every connected client")
+    @StackTrace(false)
+    static class BroadcastEvent extends Event {
+        @Label("Message Type")
+        String messageType;
+
+        @Label("Payload Size")
+        @Description("Message length in characters, the same as bytes for ASCII boards")
+        @DataAmount
+        long payloadSize;
+
+        @Label("Recipients")
+        int recipients;
+    }
+
+    @Name("kanban.Persist")
+    @Label("Persist Board")
+    @Category("Kanban")
+    @Description("The board written to the board file")
+    @StackTrace(false)
+    static class PersistEvent extends Event {
+        @Label("Bytes Written")
+        @DataAmount
+        long bytes;
+
+        @Label("Fsync Time")
+        @Description("Time spent forcing the file to disk, zero unless kanban.fsync is enabled")
+        @Timespan(Timespan.NANOSECONDS)
+        long fsyncTime;
+    }
+}
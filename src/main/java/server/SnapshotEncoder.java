@@ -0,0 +1,297 @@
+package main.java.server;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiPredicate;
+
+/**
+ * Encodes board snapshots into the BOARD_UPDATE format.
+ * Each column's tasks are cut into chunks that are encoded in parallel on a ForkJoinPool and joined
+ * in board order afterwards. Works on a BoardSnapshot copied under the board lock, so the encoding
+ * itself runs without holding it. Boards of a single chunk are encoded on the calling thread.
+ */
+public class SnapshotEncoder {
+    static final int CHUNK_TASKS = 2048;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Create an encoder using up to the given number of threads, 1 to always encode on the calling thread
+     */
+    public SnapshotEncoder(int parallelism) {
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism, SnapshotEncoder::newWorker, null, false) : null;
+    }
+
+    private static ForkJoinWorkerThread newWorker(ForkJoinPool pool) {
+        ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        worker.setName("snapshot-encoder-" + worker.getPoolIndex());
+        return worker;
+    }
+
+    /**
+     * Encode a board as column:task;task|column:..., where each task is
+     * id,title,description,assignee,dueDate with the description hash in place of the description.
+     * With descriptions, as replicas get it, the text can hold any separator, so every string is length
+     * prefixed instead: each column is length:name then taskCount; and each task five length:value strings.
+     */
+    public String encode(BoardSnapshot board, boolean withDescriptions) {
+        List<Chunk> chunks = new ArrayList<>();
+        for (int column = 0; column < board.tasks.length; column++) {
+            for (int from = 0; from < board.tasks[column].length; from += CHUNK_TASKS) {
+                chunks.add(new Chunk(column, from, Math.min(from + CHUNK_TASKS, board.tasks[column].length)));
+            }
+        }
+
+        String[] encoded = new String[chunks.size()];
+        EncodeChunks task = new EncodeChunks(board, chunks, encoded, 0, chunks.size(), withDescriptions);
+        if (pool != null && chunks.size() > 1) {
+            pool.invoke(task);
+        } else {
+            task.encodeSequentially();
+        }
+
+        int length = 0;
+        for (String segment : encoded) {
+            length += segment.length() + 1;
+        }
+        for (String name : board.columnNames) {
+            length += name.length() + 2;
+        }
+
+        // Chunks are in column order, so each column's chunks follow its name
+        StringBuilder sb = new StringBuilder(length);
+        int next = 0;
+        for (int column = 0; column < board.columnNames.length; column++) {
+            if (withDescriptions) {
+                appendString(sb, board.columnNames[column]);
+                sb.append(board.tasks[column].length).append(';');
+            } else {
+                if (column > 0) {
+                    sb.append('|');
+                }
+                sb.append(board.columnNames[column]).append(':');
+            }
+            for (int first = next; next < chunks.size() && chunks.get(next).column == column; next++) {
+                if (next > first && !withDescriptions) {
+                    sb.append(';');
+                }
+                sb.append(encoded[next]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String encodeTasks(Task[] tasks, int from, int to, boolean withDescriptions) {
+        StringBuilder sb = new StringBuilder((to - from) * 64);
+        for (int i = from; i < to; i++) {
+            Task task = tasks[i];
+            if (withDescriptions) {
+                appendString(sb, task.getId());
+                appendString(sb, task.getTitle());
+                appendString(sb, task.getDescription());
+                appendString(sb, task.getAssignee());
+                appendString(sb, task.getDueDate());
+                continue;
+            }
+            if (i > from) {
+                sb.append(';');
+            }
+            sb.append(task.getId()).append(',')
+              .append(task.getTitle()).append(',')
+              .append(withDescriptions ? task.getDescription() : task.getDescriptionHash()).append(',')
+              .append(task.getAssignee()).append(',')
+              .append(task.getDueDate());
+        }
+        return sb.toString();
+    }
+
+    private static void appendString(StringBuilder sb, String value) {
+        sb.append(value.length()).append(':').append(value);
+    }
+
+    /**
+     * Parse a board encoded with descriptions
+     */
+    public static List<KanbanColumn> decode(String data) throws IOException {
+        List<KanbanColumn> columns = new ArrayList<>();
+        Reader in = new Reader(data);
+        while (in.hasMore()) {
+            KanbanColumn column = new KanbanColumn(in.readString());
+            for (int count = in.readNumber(';'); count > 0; count--) {
+                column.addTask(new Task(in.readString(), in.readString(), in.readString(), in.readString(), in.readString()));
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    /**
+     * Reads the length-prefixed strings of a board encoded with descriptions
+     */
+    private static class Reader {
+        private final String data;
+        private int position;
+
+        Reader(String data) {
+            this.data = data;
+        }
+
+        boolean hasMore() {
+            return position < data.length();
+        }
+
+        String readString() throws IOException {
+            int length = readNumber(':');
+            if (length > data.length() - position) {
+                throw new IOException("Board data ends inside a string at " + position);
+            }
+            String value = data.substring(position, position + length);
+            position += length;
+            return value;
+        }
+
+        int readNumber(char end) throws IOException {
+            int stop = data.indexOf(end, position);
+            if (stop < 0) {
+                throw new IOException("Board data has no '" + end + "' after " + position);
+            }
+            try {
+                int number = Integer.parseInt(data.substring(position, stop));
+                if (number < 0) {
+                    throw new IOException("Negative length in board data at " + position);
+                }
+                position = stop + 1;
+                return number;
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed number in board data at " + position);
+            }
+        }
+    }
+
+    /**
+     * The board's columns and tasks at one version.
+     * Tasks are never changed once on the board, edits replace them, so copying the task lists
+     * is enough to keep encoding the board after the lock is released.
+     */
+    public static class BoardSnapshot {
+        final long epoch;
+        final long version;
+        final String[] columnNames;
+        final Task[][] tasks;
+
+        private BoardSnapshot(long epoch, long version, String[] columnNames, Task[][] tasks) {
+            this.epoch = epoch;
+            this.version = version;
+            this.columnNames = columnNames;
+            this.tasks = tasks;
+        }
+
+        /**
+         * Copy a board. Must be called while holding its lock.
+         */
+        public static BoardSnapshot of(long epoch, long version, List<KanbanColumn> board) {
+            String[] columnNames = new String[board.size()];
+            Task[][] tasks = new Task[board.size()][];
+            for (int i = 0; i < board.size(); i++) {
+                columnNames[i] = board.get(i).getName();
+                tasks[i] = board.get(i).getTasks().toArray(new Task[0]);
+            }
+            return new BoardSnapshot(epoch, version, columnNames, tasks);
+        }
+
+        /**
+         * Copy the tasks of a board that pass a filter given the column name and task, keeping every column.
+         * Must be called while holding its lock.
+         */
+        public static BoardSnapshot of(long epoch, long version, List<KanbanColumn> board,
+                                       BiPredicate<String, Task> include) {
+            String[] columnNames = new String[board.size()];
+            Task[][] tasks = new Task[board.size()][];
+            for (int i = 0; i < board.size(); i++) {
+                String name = board.get(i).getName();
+                columnNames[i] = name;
+                tasks[i] = board.get(i).getTasks().stream().filter(task -> include.test(name, task)).toArray(Task[]::new);
+            }
+            return new BoardSnapshot(epoch, version, columnNames, tasks);
+        }
+
+        /**
+         * Build columns holding the copied tasks, detached from the board, e.g. to save it without its lock
+         */
+        public List<KanbanColumn> toColumns() {
+            List<KanbanColumn> columns = new ArrayList<>(columnNames.length);
+            for (int i = 0; i < columnNames.length; i++) {
+                KanbanColumn column = new KanbanColumn(columnNames[i]);
+                column.getTasks().addAll(Arrays.asList(tasks[i]));
+                columns.add(column);
+            }
+            return columns;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    private static class Chunk {
+        final int column;
+        final int from;
+        final int to;
+
+        Chunk(int column, int from, int to) {
+            this.column = column;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Encode a range of chunks, splitting it in halves until each task encodes one chunk
+     */
+    private static class EncodeChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BoardSnapshot board;
+        private final List<Chunk> chunks;
+        private final String[] encoded;
+        private final int from;
+        private final int to;
+        private final boolean withDescriptions;
+
+        EncodeChunks(BoardSnapshot board, List<Chunk> chunks, String[] encoded, int from, int to, boolean withDescriptions) {
+            this.board = board;
+            this.chunks = chunks;
+            this.encoded = encoded;
+            this.from = from;
+            this.to = to;
+            this.withDescriptions = withDescriptions;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                encodeSequentially();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EncodeChunks(board, chunks, encoded, from, middle, withDescriptions),
+                      new EncodeChunks(board, chunks, encoded, middle, to, withDescriptions));
+        }
+
+        void encodeSequentially() {
+            for (int i = from; i < to; i++) {
+                Chunk chunk = chunks.get(i);
+                encoded[i] = encodeTasks(board.tasks[chunk.column], chunk.from, chunk.to, withDescriptions);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package main.java.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.LongPredicate;
+import java.util.function.Supplier;
+
+/**
+ * A client board snapshot kept on disk as the complete BOARD_UPDATE line, ready to be sent.
+ * Joining clients are sent the file straight from the page cache with FileChannel.transferTo,
+ * followed by the events since its version, instead of the board being encoded for each of them.
+ * The file is only rewritten when it has fallen too far behind, so a burst of joins, e.g. every
+ * client reconnecting after a restart, encodes the board once.
+ */
+public class SnapshotFile {
+    private final Path path;
+
+    // What the file on disk holds, guarded by this
+    private long epoch = -1;
+    private long version = -1;
+
+    public SnapshotFile(String path) {
+        this.path = Paths.get(path);
+    }
+
+    /**
+     * Open the snapshot if usable(version) accepts it for the given epoch, otherwise write the snapshot
+     * built by encode first. Callers waiting meanwhile get the new file rather than encoding it again.
+     */
+    public synchronized Reader open(long currentEpoch, LongPredicate usable, Supplier<Snapshot> encode) throws IOException {
+        if (epoch != currentEpoch || !usable.test(version)) {
+            write(encode.get());
+        }
+        return new Reader(FileChannel.open(path, StandardOpenOption.READ), epoch, version);
+    }
+
+    private void write(Snapshot snapshot) throws IOException {
+        // Same charset and line ending the client PrintWriters use, since the bytes go out unchanged
+        Path tempFile = Paths.get(path + ".tmp");
+        Files.write(tempFile, (snapshot.message + System.lineSeparator()).getBytes(Charset.defaultCharset()));
+        Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        epoch = snapshot.epoch;
+        version = snapshot.version;
+    }
+
+    /**
+     * An encoded BOARD_UPDATE message with the epoch and version it was built at
+     */
+    public static class Snapshot {
+        final long epoch;
+        final long version;
+        final String message;
+
+        public Snapshot(long epoch, long version, String message) {
+            this.epoch = epoch;
+            this.version = version;
+            this.message = message;
+        }
+    }
+
+    /**
+     * The snapshot file opened at one version. It stays readable if the file is replaced meanwhile.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long epoch;
+        private final long version;
+
+        Reader(FileChannel channel, long epoch, long version) {
+            this.channel = channel;
+            this.epoch = epoch;
+            this.version = version;
+        }
+
+        public FileChannel getChannel() {
+            return channel;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
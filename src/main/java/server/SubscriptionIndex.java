@@ -0,0 +1,70 @@
+package main.java.server;
+
+import java.util.*;
+
+/**
+ * Inverted index from board topics to the subscribers interested in them.
+ * A topic is a column or an assignee; each board event lists the topics it touches, and its
+ * recipients are found by looking those few topics up rather than checking every subscriber's filter.
+ * Subscribers without a filter are not in the index, they get the whole board instead.
+ */
+public class SubscriptionIndex<T> {
+    private final Map<String, Set<T>> subscribersByTopic = new HashMap<>();
+    private final Map<T, Set<String>> topicsBySubscriber = new HashMap<>();
+
+    public static String column(String columnName) {
+        return "column:" + columnName;
+    }
+
+    public static String assignee(String assignee) {
+        return "assignee:" + assignee;
+    }
+
+    /**
+     * Replace a subscriber's topics. An empty collection removes its filter.
+     */
+    public synchronized void subscribe(T subscriber, Collection<String> topics) {
+        unsubscribe(subscriber);
+        if (topics.isEmpty()) {
+            return;
+        }
+
+        Set<String> distinct = new LinkedHashSet<>(topics);
+        topicsBySubscriber.put(subscriber, distinct);
+        for (String topic : distinct) {
+            subscribersByTopic.computeIfAbsent(topic, key -> new HashSet<>()).add(subscriber);
+        }
+    }
+
+    public synchronized void unsubscribe(T subscriber) {
+        Set<String> topics = topicsBySubscriber.remove(subscriber);
+        if (topics == null) {
+            return;
+        }
+
+        for (String topic : topics) {
+            Set<T> subscribers = subscribersByTopic.get(topic);
+            if (subscribers != null && subscribers.remove(subscriber) && subscribers.isEmpty()) {
+                subscribersByTopic.remove(topic);
+            }
+        }
+    }
+
+    /**
+     * Get the subscribers interested in any of the given topics
+     */
+    public synchronized Set<T> match(Collection<String> topics) {
+        Set<T> matches = new HashSet<>();
+        for (String topic : topics) {
+            Set<T> subscribers = subscribersByTopic.get(topic);
+            if (subscribers != null) {
+                matches.addAll(subscribers);
+            }
+        }
+        return matches;
+    }
+
+    public synchronized int size() {
+        return topicsBySubscriber.size();
+    }
+}
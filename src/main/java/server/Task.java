@@ -1,6 +1,11 @@
 package main.java.server;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.UUID;
 
 /**
@@ -9,12 +14,27 @@ import java.util.UUID;
 public class Task implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    /**
+     * Due day of tasks without a due date, or with one that is not a YYYY-MM-DD date
+     */
+    public static final long NO_DUE_DAY = Long.MIN_VALUE;
+    
     private String id;
     private String title;
     private String description;
     private String assignee;
     private String dueDate;
     
+    // When the task was put into a finished column, used to archive it after a while. 0 if not known.
+    private long finishedAt;
+    
+    // Sent to clients in place of the description, worked out on first use
+    private transient String descriptionHash;
+    
+    // The due date as days since 1970-01-01, worked out on first use
+    private transient long dueDay;
+    private transient boolean dueDayParsed;
+    
     public Task(String title, String description, String assignee, String dueDate) {
         this.id = UUID.randomUUID().toString();
         this.title = title;
@@ -49,6 +69,16 @@ public class Task implements Serializable {
     
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionHash = null;
+    }
+    
+    public String getDescriptionHash() {
+        String hash = descriptionHash;
+        if (hash == null) {
+            hash = hashDescription(description);
+            descriptionHash = hash;
+        }
+        return hash;
     }
     
     public String getAssignee() {
@@ -65,6 +95,57 @@ public class Task implements Serializable {
     
     public void setDueDate(String dueDate) {
         this.dueDate = dueDate;
+        this.dueDayParsed = false;
+    }
+    
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    /**
+     * Get the due date as an epoch day, or NO_DUE_DAY
+     */
+    public long getDueDay() {
+        if (!dueDayParsed) {
+            dueDay = parseDueDay(dueDate);
+            dueDayParsed = true;
+        }
+        return dueDay;
+    }
+    
+    static long parseDueDay(String dueDate) {
+        if (dueDate == null || dueDate.isEmpty()) {
+            return NO_DUE_DAY;
+        }
+        try {
+            return LocalDate.parse(dueDate.trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return NO_DUE_DAY;
+        }
+    }
+    
+    /**
+     * Short hash identifying a description, empty for an empty description.
+     * Clients compute the same hash, see TaskData.hashDescription.
+     */
+    static String hashDescription(String description) {
+        if (description == null || description.isEmpty()) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xFF);
+            }
+            return Long.toHexString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     @Override
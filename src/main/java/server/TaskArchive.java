@@ -0,0 +1,463 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Cold tier for tasks taken off the board, so finished work is kept without growing the board.
+ * Tasks are appended to gzip-compressed segment files in blocks of up to BLOCK_TASKS, each block its
+ * own gzip member, so restoring a task only decompresses its block. An append-only index log records
+ * the segment and block of every archived task and every removal, and is loaded into memory at startup.
+ * Archiving is split into prepare, write and publish, so callers can compress and write tasks before
+ * taking their own locks and only publish them under those. Searches decompress the segments newest
+ * first without blocking archiving.
+ */
+public class TaskArchive {
+    private static final Log log = Log.get(TaskArchive.class);
+    static final int BLOCK_TASKS = 256;
+
+    private final File directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+
+    // Where the latest record of each archived task is, by task ID. Read by searches without the lock.
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    // Committed length of each segment by number, the next record sequence number and the open index log,
+    // guarded by this
+    private final TreeMap<Integer, Long> segmentLengths = new TreeMap<>();
+    private long nextSeq = 1;
+    private FileOutputStream indexFile;
+    private Writer indexLog;
+
+    /**
+     * @param directory where the segments and the index log are kept, created on first use
+     * @param segmentBytes size after which a new segment is started
+     * @param fsync whether to force each append to disk
+     */
+    public TaskArchive(File directory, long segmentBytes, boolean fsync) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Load the index log, if the archive exists. Writes a compacted log if most of it is restores
+     * and tasks archived again since.
+     */
+    public synchronized void load() throws IOException {
+        File logFile = new File(directory, "index");
+        if (!logFile.exists()) {
+            return;
+        }
+
+        int lines = 0;
+        try (BufferedReader in = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            // Blocks only count once their commit line is there, anything after the last one was torn by a crash
+            Map<String, Location> uncommitted = new LinkedHashMap<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines++;
+                String[] parts = line.split("\\|", 5);
+                switch (parts[0]) {
+                    case "A":
+                        // Format: A|seq|segment|offset|taskId
+                        long seq = Long.parseLong(parts[1]);
+                        uncommitted.put(parts[4], new Location(Integer.parseInt(parts[2]), Long.parseLong(parts[3]), seq));
+                        nextSeq = Math.max(nextSeq, seq + 1);
+                        break;
+                    case "C":
+                        // Format: C|segment|length
+                        segmentLengths.put(Integer.parseInt(parts[1]), Long.parseLong(parts[2]));
+                        index.putAll(uncommitted);
+                        uncommitted.clear();
+                        break;
+                    case "R":
+                        // Format: R|taskId
+                        index.remove(parts[1]);
+                        break;
+                }
+            }
+        }
+
+        if (lines > 2 * (index.size() + segmentLengths.size()) + 1000) {
+            rewriteIndex(logFile);
+        }
+        log.info("Archive loaded: " + index.size() + " tasks in " + segmentLengths.size() + " segments");
+    }
+
+    /**
+     * Encode tasks about to be taken off columns into blocks. Only reserves their sequence numbers under
+     * the archive lock, the compression runs without it. Nothing is stored until the batch is written.
+     */
+    public Batch prepare(Map<String, List<Task>> tasksByColumn, long archivedAt) throws IOException {
+        Batch batch = new Batch();
+        for (Map.Entry<String, List<Task>> column : tasksByColumn.entrySet()) {
+            List<Task> tasks = column.getValue();
+            for (int from = 0; from < tasks.size(); from += BLOCK_TASKS) {
+                List<Task> blockTasks = new ArrayList<>(tasks.subList(from, Math.min(from + BLOCK_TASKS, tasks.size())));
+                long firstSeq;
+                synchronized (this) {
+                    firstSeq = nextSeq;
+                    nextSeq += blockTasks.size();
+                }
+                batch.blocks.add(new Block(blockTasks, firstSeq, encodeBlock(column.getKey(), blockTasks, archivedAt, firstSeq)));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Append a prepared batch to the segments and the index log. Its tasks are only found once published.
+     * If this fails, the blocks already written are marked removed again.
+     */
+    public synchronized void write(Batch batch) throws IOException {
+        if (batch.blocks.isEmpty()) {
+            return;
+        }
+        Writer indexOut = indexLog();
+        List<String> written = new ArrayList<>();
+        try {
+            for (Block block : batch.blocks) {
+                Map.Entry<Integer, Long> last = segmentLengths.lastEntry();
+                int segment = last == null ? 1 : last.getKey();
+                long offset = last == null ? 0 : last.getValue();
+                if (offset >= segmentBytes) {
+                    segment++;
+                    offset = 0;
+                }
+
+                // Written at the committed length, so whatever a crash left past it is overwritten
+                try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    ByteBuffer buffer = ByteBuffer.wrap(block.bytes);
+                    long position = offset;
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    if (fsync) {
+                        channel.force(false);
+                    }
+                }
+
+                for (int i = 0; i < block.tasks.size(); i++) {
+                    indexOut.write("A|" + (block.firstSeq + i) + "|" + segment + "|" + offset + "|" + block.tasks.get(i).getId() + "\n");
+                }
+                indexOut.write("C|" + segment + "|" + (offset + block.bytes.length) + "\n");
+                indexOut.flush();
+                if (fsync) {
+                    indexFile.getFD().sync();
+                }
+
+                segmentLengths.put(segment, offset + block.bytes.length);
+                block.segment = segment;
+                block.offset = offset;
+                for (Task task : block.tasks) {
+                    written.add(task.getId());
+                }
+            }
+        } catch (IOException e) {
+            try {
+                markRemoved(written);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Make the tasks of a written batch that were taken off the board findable, and return the IDs of
+     * the others, to be passed to markRemoved. Does no I/O, so it can be called under the board lock.
+     */
+    public List<String> publish(Batch batch, Collection<Task> takenOff) {
+        Set<Task> published = Collections.newSetFromMap(new IdentityHashMap<>());
+        published.addAll(takenOff);
+        List<String> left = new ArrayList<>();
+        for (Block block : batch.blocks) {
+            for (int i = 0; i < block.tasks.size(); i++) {
+                Task task = block.tasks.get(i);
+                if (published.contains(task)) {
+                    index.put(task.getId(), new Location(block.segment, block.offset, block.firstSeq + i));
+                } else {
+                    left.add(task.getId());
+                }
+            }
+        }
+        return left;
+    }
+
+    public boolean contains(String taskId) {
+        return index.containsKey(taskId);
+    }
+
+    /**
+     * Read an archived task back, or return null if it is not in the archive
+     */
+    public synchronized ArchivedTask read(String taskId) throws IOException {
+        Location location = index.get(taskId);
+        if (location == null) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(segmentPath(location.segment), StandardOpenOption.READ)) {
+            channel.position(location.offset);
+            DataInputStream in = new DataInputStream(new GZIPInputStream(Channels.newInputStream(channel)));
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                ArchivedTask archived = readRecord(in);
+                if (archived.seq == location.seq) {
+                    return archived;
+                }
+            }
+        }
+        throw new IOException("Archived task " + taskId + " is missing from segment " + location.segment);
+    }
+
+    /**
+     * Take a task out of the index, e.g. when it is back on the board, and return whether it was there.
+     * Does no I/O, the removal is logged with markRemoved afterwards.
+     */
+    public boolean remove(String taskId) {
+        return index.remove(taskId) != null;
+    }
+
+    /**
+     * Record in the index log that tasks are no longer archived, so they stay out of the index after a restart
+     */
+    public synchronized void markRemoved(List<String> taskIds) throws IOException {
+        if (taskIds.isEmpty()) {
+            return;
+        }
+        Writer indexOut = indexLog();
+        for (String taskId : taskIds) {
+            indexOut.write("R|" + taskId + "\n");
+        }
+        indexOut.flush();
+        if (fsync) {
+            indexFile.getFD().sync();
+        }
+    }
+
+    /**
+     * Find archived tasks whose title, description or assignee contains the query, ignoring case,
+     * most recently archived first. An empty query matches every task.
+     */
+    public List<ArchivedTask> search(String query, int limit) throws IOException {
+        List<Integer> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(segmentLengths.descendingKeySet());
+        }
+
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<ArchivedTask> matches = new ArrayList<>();
+        for (int segment : segments) {
+            List<ArchivedTask> segmentMatches = new ArrayList<>();
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                    new BufferedInputStream(Files.newInputStream(segmentPath(segment)), 1 << 16)))) {
+                while (true) {
+                    int count;
+                    try {
+                        count = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        ArchivedTask archived = readRecord(in);
+                        Location location = index.get(archived.task.getId());
+                        if (location != null && location.seq == archived.seq && archived.matches(needle)) {
+                            segmentMatches.add(archived);
+                        }
+                    }
+                }
+            } catch (EOFException | ZipException e) {
+                // A block still being written, or one a crash tore before it was committed
+            }
+
+            Collections.reverse(segmentMatches);
+            matches.addAll(segmentMatches);
+            if (matches.size() >= limit) {
+                return new ArrayList<>(matches.subList(0, limit));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Get the number of tasks in the archive
+     */
+    public int size() {
+        return index.size();
+    }
+
+    private Path segmentPath(int segment) {
+        return new File(directory, String.format("segment-%06d.gz", segment)).toPath();
+    }
+
+    private Writer indexLog() throws IOException {
+        if (indexLog == null) {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create archive directory " + directory);
+            }
+            indexFile = new FileOutputStream(new File(directory, "index"), true);
+            indexLog = new BufferedWriter(new OutputStreamWriter(indexFile, StandardCharsets.UTF_8));
+        }
+        return indexLog;
+    }
+
+    /**
+     * Replace the index log with one holding only the live entries
+     */
+    private void rewriteIndex(File logFile) throws IOException {
+        File tempFile = new File(directory, "index.tmp");
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                out.write("A|" + location.seq + "|" + location.segment + "|" + location.offset + "|" + entry.getKey() + "\n");
+            }
+            for (Map.Entry<Integer, Long> segment : segmentLengths.entrySet()) {
+                out.write("C|" + segment.getKey() + "|" + segment.getValue() + "\n");
+            }
+        }
+        Files.move(tempFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encodeBlock(String columnName, List<Task> tasks, long archivedAt, long firstSeq) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(tasks.size());
+            for (int i = 0; i < tasks.size(); i++) {
+                Task task = tasks.get(i);
+                out.writeLong(firstSeq + i);
+                out.writeLong(archivedAt);
+                writeString(out, columnName);
+                writeString(out, task.getId());
+                writeString(out, task.getTitle());
+                writeString(out, task.getDescription());
+                writeString(out, task.getAssignee());
+                writeString(out, task.getDueDate());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static ArchivedTask readRecord(DataInputStream in) throws IOException {
+        long seq = in.readLong();
+        long archivedAt = in.readLong();
+        String columnName = readString(in);
+        String id = readString(in);
+        String title = readString(in);
+        String description = readString(in);
+        String assignee = readString(in);
+        String dueDate = readString(in);
+        return new ArchivedTask(seq, archivedAt, columnName, new Task(id, title, description, assignee, dueDate));
+    }
+
+    // Length-prefixed UTF-8, since writeUTF cannot hold strings over 64 KB
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tasks encoded for the archive by prepare, in blocks that remember where write put them
+     */
+    public static class Batch {
+        private final List<Block> blocks = new ArrayList<>();
+
+        /**
+         * Get the IDs of every task in the batch
+         */
+        public List<String> taskIds() {
+            List<String> ids = new ArrayList<>();
+            for (Block block : blocks) {
+                for (Task task : block.tasks) {
+                    ids.add(task.getId());
+                }
+            }
+            return ids;
+        }
+    }
+
+    private static class Block {
+        final List<Task> tasks;
+        final long firstSeq;
+        final byte[] bytes;
+        int segment;
+        long offset;
+
+        Block(List<Task> tasks, long firstSeq, byte[] bytes) {
+            this.tasks = tasks;
+            this.firstSeq = firstSeq;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Location {
+        final int segment;
+        final long offset;
+        final long seq;
+
+        Location(int segment, long offset, long seq) {
+            this.segment = segment;
+            this.offset = offset;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * A task as it was when archived, with the column it was taken from
+     */
+    public static class ArchivedTask {
+        private final long seq;
+        private final long archivedAt;
+        private final String columnName;
+        private final Task task;
+
+        ArchivedTask(long seq, long archivedAt, String columnName, Task task) {
+            this.seq = seq;
+            this.archivedAt = archivedAt;
+            this.columnName = columnName;
+            this.task = task;
+        }
+
+        boolean matches(String needle) {
+            return needle.isEmpty()
+                    || task.getTitle().toLowerCase(Locale.ROOT).contains(needle)
+                    || task.getDescription().toLowerCase(Locale.ROOT).contains(needle)
+                    || task.getAssignee().toLowerCase(Locale.ROOT).contains(needle);
+        }
+
+        public long getArchivedAt() {
+            return archivedAt;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package main.java.server;
+
+import main.java.logging.Log;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timer wheel for tracking large numbers of coarse timeouts with one thread.
+ * Timeouts are hashed into a fixed ring of slots by deadline, so each tick only looks
+ * at the timeouts in the current slot instead of every scheduled timeout.
+ */
+public class TimerWheel<T> {
+    private static final Log log = Log.get(TimerWheel.class);
+
+    private final long tickMillis;
+    private final ArrayDeque<Timeout<T>>[] slots;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> onExpiry;
+    private final long startTime = System.currentTimeMillis();
+
+    // Number of ticks processed so far, only touched by the wheel thread
+    private long tick;
+
+    /**
+     * @param tickMillis resolution of the wheel
+     * @param slotCount number of slots in the ring
+     * @param onExpiry called on the wheel thread with the target of each expired timeout
+     */
+    public TimerWheel(String name, long tickMillis, int slotCount, Consumer<T> onExpiry) {
+        this.tickMillis = tickMillis;
+        this.slots = newSlots(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.onExpiry = onExpiry;
+
+        Thread worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Generic arrays cannot be created directly, the slots only ever hold Timeout<T>
+    @SuppressWarnings("unchecked")
+    private static <T> ArrayDeque<Timeout<T>>[] newSlots(int slotCount) {
+        return (ArrayDeque<Timeout<T>>[]) new ArrayDeque<?>[slotCount];
+    }
+
+    /**
+     * Schedule a timeout for the target. Safe to call from any thread.
+     */
+    public Timeout<T> schedule(T target, long delayMillis) {
+        Timeout<T> timeout = new Timeout<>(target, System.currentTimeMillis() + delayMillis);
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (true) {
+            long nextTick = startTime + (tick + 1) * tickMillis;
+            long sleep = nextTick - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            transferPending();
+            expire(slots[(int) (tick % slots.length)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Place newly scheduled timeouts into their slots
+     */
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, (timeout.deadline - startTime) / tickMillis);
+            timeout.remainingRounds = (deadlineTick - tick) / slots.length;
+            slots[(int) (deadlineTick % slots.length)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout<T>> slot) {
+        Iterator<Timeout<T>> iterator = slot.iterator();
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+            } else {
+                iterator.remove();
+                try {
+                    onExpiry.accept(timeout.target);
+                } catch (RuntimeException e) {
+                    log.warn("Error in timer callback: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Handle for a scheduled timeout
+     */
+    public static class Timeout<T> {
+        private final T target;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+
+        Timeout(T target, long deadline) {
+            this.target = target;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package main.java.server;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Replays a command trace recorded with -Dkanban.recordFile and checks the server ends at the same board.
+ * By default starts a server in this process, with its board file in a temporary directory, and gives it
+ * the board the recording started from. Against a running server the board has to be set up beforehand;
+ * a different starting board is reported but replayed anyway.
+ *
+ * Each recorded client gets its own connection, sending its commands in order at their recorded pace or
+ * faster. An edit from one client waits until the edits sent by others have been answered, so edits are
+ * applied in the recorded order at any speed and each one can be checked for the recorded ACK or NACK.
+ * Latency is measured from sending an edit until its answer.
+ *
+ * Usage: java -cp target/classes [options] main.java.server.TraceReplay
+ *   -Dkanban.replay.file=monday.trace   the trace to replay
+ *   -Dkanban.replay.speed=1             1 for the recorded pace, 10 for ten times faster, max for no pauses
+ *   -Dkanban.replay.server=host:port    replay against a running server instead of one in this process
+ */
+public class TraceReplay {
+    private static final String FILE = System.getProperty("kanban.replay.file");
+    private static final String SPEED = System.getProperty("kanban.replay.speed", "1");
+    private static final String SERVER = System.getProperty("kanban.replay.server");
+
+    private static final String VERIFY_USER = "replay-verify";
+    private static final long CONNECT_TIMEOUT_MS = 10000;
+    private static final long DRAIN_TIMEOUT_MS = 30000;
+    private static final int MISMATCHES_SHOWN = 10;
+
+    private static String host;
+    private static int port;
+
+    // Board file directory of the in-process server, deleted on exit
+    private static Path boardDir;
+
+    // Edits sent and not answered yet across all connections, waited on through the lock
+    private static final Object answerLock = new Object();
+    private static int unanswered;
+
+    private static final Map<String, LatencyHistogram> latencies = new TreeMap<>();
+    private static final Map<String, AtomicLong> rejected = new ConcurrentHashMap<>();
+    private static final AtomicLong mismatchCount = new AtomicLong();
+    private static final List<String> mismatches = Collections.synchronizedList(new ArrayList<>());
+
+    public static void main(String[] args) throws Exception {
+        if (FILE == null) {
+            System.err.println("Usage: java -Dkanban.replay.file=<trace> [-Dkanban.replay.speed=1|N|max]"
+                    + " [-Dkanban.replay.server=host:port] main.java.server.TraceReplay");
+            System.exit(1);
+        }
+        double speed = SPEED.equals("max") ? 0 : Double.parseDouble(SPEED);
+
+        boolean matches;
+        try (CommandTrace.Reader trace = new CommandTrace.Reader(new File(FILE))) {
+            System.out.printf("Trace recorded %tF %<tT from board version %d%n", trace.getStartMillis(), trace.getVersion());
+
+            if (SERVER == null) {
+                startServer(trace);
+            } else {
+                String[] address = SERVER.split(":");
+                host = address[0];
+                port = Integer.parseInt(address[1]);
+            }
+            for (String command : KanbanServer.EDIT_SEQ_INDEX.keySet()) {
+                latencies.put(command, new LatencyHistogram());
+                rejected.put(command, new AtomicLong());
+            }
+
+            // Answers carry the server's versions, which are offset from the recorded ones on a running server
+            String[] startBoard = fetchBoard();
+            long versionOffset = Long.parseLong(startBoard[0]) - trace.getVersion();
+            if (!CommandTrace.boardHash(startBoard[1]).equals(trace.getBoardHash())) {
+                System.out.println("Warning: the server's board differs from the board the recording started from");
+            }
+            System.out.println("Replaying against " + host + ":" + port + " at " + (speed == 0 ? "max" : speed + "x") + " speed");
+
+            long start = System.nanoTime();
+            long[] counts = replay(trace, speed, versionOffset, start);
+            awaitAnswers(null, DRAIN_TIMEOUT_MS);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            String[] endBoard = fetchBoard();
+            matches = report(trace, counts, seconds, versionOffset, endBoard);
+        } finally {
+            if (boardDir != null) {
+                deleteOnExit();
+            }
+        }
+        System.exit(matches ? 0 : 1);
+    }
+
+    /**
+     * Start a server in this process on a free port, from the board the recording started from.
+     * Nothing may use KanbanServer before this, since it reads its settings when first used.
+     */
+    private static void startServer(CommandTrace.Reader trace) throws Exception {
+        boardDir = Files.createTempDirectory("kanban-replay");
+        try (ServerSocket probe = new ServerSocket(0)) {
+            port = probe.getLocalPort();
+        }
+        host = "localhost";
+
+        System.setProperty("kanban.port", String.valueOf(port));
+        System.setProperty("kanban.boardFile", boardDir.resolve("board.dat").toString());
+        for (String property : new String[] {"kanban.recordFile", "kanban.replicaOf", "kanban.replicationPort", "kanban.httpPort"}) {
+            System.clearProperty(property);
+        }
+        if (System.getProperty("kanban.logLevel") == null) {
+            System.setProperty("kanban.logLevel", "WARN");
+        }
+
+        Thread server = new Thread(() -> KanbanServer.main(new String[0]), "replay-server");
+        server.setDaemon(true);
+        server.start();
+
+        // Once it answers it has loaded its own board, which is then replaced
+        fetchBoard();
+        KanbanServer.installReplicatedSnapshot(trace.getEpoch(), trace.getVersion(), trace.getFullBoard());
+    }
+
+    /**
+     * Send every recorded command. Returns the number of commands and edits sent and how far,
+     * in nanoseconds, sending fell behind the recorded pace at most.
+     */
+    private static long[] replay(CommandTrace.Reader trace, double speed, long versionOffset, long start) throws Exception {
+        Map<Integer, Connection> connections = new HashMap<>();
+        long commands = 0;
+        long edits = 0;
+        long maxLag = 0;
+        int lastEditClient = -1;
+
+        CommandTrace.Record record;
+        while ((record = trace.next()) != null) {
+            if (speed > 0) {
+                long due = start + (long) (record.time * 1000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } else {
+                    maxLag = Math.max(maxLag, -wait);
+                }
+            }
+
+            if (record.type == CommandTrace.CONNECT) {
+                connections.put(record.clientId, new Connection(record.clientId, record.text));
+            } else if (record.type == CommandTrace.DISCONNECT) {
+                Connection connection = connections.remove(record.clientId);
+                if (connection != null) {
+                    awaitAnswers(connection, DRAIN_TIMEOUT_MS);
+                    connection.close();
+                }
+            } else {
+                Connection connection = connections.get(record.clientId);
+                if (connection == null) {
+                    continue;
+                }
+                String command = record.text.split("\\|", 2)[0];
+                if (KanbanServer.EDIT_SEQ_INDEX.containsKey(command)) {
+                    // Edits from one connection are applied in the order sent, from several only once answered
+                    if (record.clientId != lastEditClient) {
+                        awaitAnswers(null, DRAIN_TIMEOUT_MS);
+                        lastEditClient = record.clientId;
+                    }
+                    connection.sendEdit(command, record.text, record.version > 0 ? record.version + versionOffset : 0);
+                    edits++;
+                } else {
+                    connection.send(record.text);
+                }
+                commands++;
+            }
+        }
+
+        for (Connection connection : connections.values()) {
+            awaitAnswers(connection, DRAIN_TIMEOUT_MS);
+            connection.close();
+        }
+        return new long[] {commands, edits, maxLag};
+    }
+
+    /**
+     * Wait until the edits sent on a connection, or on every connection if null, have been answered
+     */
+    private static void awaitAnswers(Connection connection, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (answerLock) {
+            while (connection == null ? unanswered > 0 : !connection.pending.isEmpty()) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    return;
+                }
+                answerLock.wait(wait);
+            }
+        }
+    }
+
+    /**
+     * Log in on a connection of our own and get the server's board, waiting for the server to start.
+     * Returns the version and the board data of a BOARD_UPDATE.
+     */
+    private static String[] fetchBoard() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        Socket connected;
+        while (true) {
+            try {
+                connected = new Socket(host, port);
+                break;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(20);
+            }
+        }
+
+        try (Socket socket = connected) {
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            // Format: LOGIN|username, then REFRESH for a board sent after everything before it
+            out.println("LOGIN|" + VERIFY_USER);
+            out.println("REFRESH");
+            int updates = 0;
+            String message;
+            while ((message = in.readLine()) != null) {
+                if (message.equals("PING")) {
+                    out.println("PONG");
+                } else if (message.startsWith("BOARD_UPDATE|") && ++updates == 2) {
+                    // Format: BOARD_UPDATE|epoch|version|boardData
+                    String[] parts = message.split("\\|", 4);
+
+                    // Log out by closing our side and reading what is left, so the server sees a clean end
+                    socket.shutdownOutput();
+                    while (in.readLine() != null) {
+                        // Discard
+                    }
+                    return new String[] {parts[2], parts[3]};
+                }
+            }
+            throw new EOFException("Server closed the connection before sending the board");
+        }
+    }
+
+    private static boolean report(CommandTrace.Reader trace, long[] counts, double seconds, long versionOffset,
+                                  String[] endBoard) {
+        System.out.println();
+        System.out.printf("Replayed %d commands (%d edits) in %.1f s (%.1f/s, %.1f edits/s)%n",
+                counts[0], counts[1], seconds, counts[0] / seconds, counts[1] / seconds);
+        if (counts[2] > 0) {
+            System.out.printf("Fell behind the recorded pace by up to %.1f ms%n", counts[2] / 1e6);
+        }
+        if (unanswered > 0) {
+            System.out.println(unanswered + " edits were not answered");
+        }
+        System.out.printf("%-16s %8s %8s %9s %9s %9s %9s %9s%n",
+                "command", "sent", "rejected", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram latency = entry.getValue();
+            if (latency.getCount() > 0) {
+                System.out.printf("%-16s %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        entry.getKey(), latency.getCount(), rejected.get(entry.getKey()).get(),
+                        latency.getP50Micros() / 1000, latency.getP90Micros() / 1000, latency.getP99Micros() / 1000,
+                        latency.getP999Micros() / 1000, latency.getMaxMicros() / 1000);
+            }
+        }
+
+        System.out.println();
+        boolean matches = mismatchCount.get() == 0 && unanswered == 0;
+        if (mismatchCount.get() > 0) {
+            System.out.println(mismatchCount.get() + " edits were answered differently than when recorded, e.g.");
+            for (String mismatch : mismatches) {
+                System.out.println("  " + mismatch);
+            }
+        }
+        if (trace.getDroppedCount() > 0) {
+            System.out.println("Warning: " + trace.getDroppedCount() + " records were dropped while recording");
+        }
+
+        long endVersion = Long.parseLong(endBoard[0]) - versionOffset;
+        if (trace.getEndVersion() < 0) {
+            System.out.println("Trace has no end, ended at board version " + endVersion + " without checking the board");
+        } else if (endVersion == trace.getEndVersion() && CommandTrace.boardHash(endBoard[1]).equals(trace.getEndBoardHash())) {
+            System.out.println("Board matches the recording at version " + endVersion);
+        } else {
+            System.out.println("Board does not match the recording: version " + endVersion + ", recorded "
+                    + trace.getEndVersion() + (endVersion == trace.getEndVersion() ? " with different tasks" : ""));
+            matches = false;
+        }
+        return matches;
+    }
+
+    private static void deleteOnExit() throws IOException {
+        // Deleted after the in-process server's shutdown hooks have saved into it, deepest first
+        try (Stream<Path> paths = Files.walk(boardDir)) {
+            paths.forEach(path -> path.toFile().deleteOnExit());
+        }
+    }
+
+    /**
+     * The connection of one recorded client, with a reader thread for the server's answers
+     */
+    private static class Connection {
+        private final int clientId;
+        private final Socket socket;
+        private final PrintWriter out;
+        private long nextSeq = 1;
+
+        // Edits waiting for ACK/NACK by the sequence number we gave them
+        private final Map<Long, Sent> pending = new ConcurrentHashMap<>();
+
+        Connection(int clientId, String login) throws IOException {
+            this.clientId = clientId;
+            this.socket = new Socket(host, port);
+            this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            Thread reader = new Thread(() -> readLoop(in), "replay-reader-" + clientId);
+            reader.setDaemon(true);
+            reader.start();
+
+            // The recorded login line, LOGIN|username or LOGIN|username|epoch|lastSeenVersion
+            out.println(login);
+        }
+
+        void send(String message) {
+            out.println(message);
+        }
+
+        /**
+         * Send an edit with a sequence number of ours in place of the recorded one, expecting an ACK
+         * with the given version or a NACK if it is 0
+         */
+        void sendEdit(String command, String message, long expectedVersion) {
+            int seqIndex = KanbanServer.EDIT_SEQ_INDEX.get(command);
+            String[] parts = message.split("\\|", -1);
+            if (parts.length < seqIndex) {
+                // Malformed, replayed as it was without expecting an answer
+                out.println(message);
+                return;
+            }
+
+            long seq = nextSeq++;
+            if (parts.length > seqIndex) {
+                parts[seqIndex] = String.valueOf(seq);
+                message = String.join("|", parts);
+            } else {
+                message = message + "|" + seq;
+            }
+            synchronized (answerLock) {
+                unanswered++;
+            }
+            pending.put(seq, new Sent(command, message, expectedVersion, System.nanoTime()));
+            out.println(message);
+        }
+
+        /**
+         * Close our side, the reader thread closes the socket once the server has closed its side
+         */
+        void close() {
+            try {
+                socket.shutdownOutput();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        private void readLoop(BufferedReader in) {
+            try {
+                String message;
+                while ((message = in.readLine()) != null) {
+                    if (message.equals("PING")) {
+                        out.println("PONG");
+                    } else if (message.startsWith("ACK|") || message.startsWith("NACK|")) {
+                        handleReply(message, System.nanoTime());
+                    }
+                }
+            } catch (IOException e) {
+                // Connection closed
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        /**
+         * Check the server's answer to one of our edits against the recording.
+         * Format: ACK|seq|version or NACK|seq|reason
+         */
+        private void handleReply(String message, long now) {
+            String[] parts = message.split("\\|", 3);
+            Sent sent = pending.remove(Long.parseLong(parts[1]));
+            if (sent == null) {
+                return;
+            }
+            latencies.get(sent.command).record(now - sent.nanos);
+
+            boolean acked = parts[0].equals("ACK");
+            if (!acked) {
+                rejected.get(sent.command).incrementAndGet();
+            }
+            if (acked != sent.expectedVersion > 0 || acked && Long.parseLong(parts[2]) != sent.expectedVersion) {
+                mismatchCount.incrementAndGet();
+                if (mismatches.size() < MISMATCHES_SHOWN) {
+                    mismatches.add("client " + clientId + " " + sent.message + ": " + message + ", recorded "
+                            + (sent.expectedVersion > 0 ? "ACK at version " + sent.expectedVersion : "NACK"));
+                }
+            }
+
+            synchronized (answerLock) {
+                unanswered--;
+                answerLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * An edit that was sent, waiting for its answer
+     */
+    private static class Sent {
+        private final String command;
+        private final String message;
+        private final long expectedVersion;
+        private final long nanos;
+
+        Sent(String command, String message, long expectedVersion, long nanos) {
+            this.command = command;
+            this.message = message;
+            this.expectedVersion = expectedVersion;
+            this.nanos = nanos;
+        }
+    }
+}
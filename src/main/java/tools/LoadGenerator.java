@@ -0,0 +1,438 @@
+package main.java.tools;
+
+import java.io.*;
+import java.net.Socket;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simulates many concurrent board users against a server on localhost.
+ * Opens the configured number of connections, logs each in with its own username, and drives a mix
+ * of board edits and chat messages from the editors at a fixed target rate. Latency is measured from
+ * sending a command until the change is visible on the sender's connection: for edits, the first board
+ * broadcast at or after the version in the server's ACK; for chat, the echo of the message itself.
+ *
+ * Usage: java -cp target/classes [options] main.java.tools.LoadGenerator
+ *   -Dkanban.load.clients=500     connections to open
+ *   -Dkanban.load.editors=50      how many of them send commands, the rest only watch
+ *   -Dkanban.load.rate=100        commands per second across all editors
+ *   -Dkanban.load.seconds=30      how long to send for
+ *   -Dkanban.load.mix=add:30,move:30,update:20,delete:10,chat:10
+ */
+public class LoadGenerator {
+    private static final String HOST = "localhost";
+    private static final int PORT = Integer.getInteger("kanban.load.port", 5000);
+    private static final int CLIENTS = Integer.getInteger("kanban.load.clients", 500);
+    private static final int EDITORS = Math.min(CLIENTS, Integer.getInteger("kanban.load.editors", 50));
+    private static final int RATE = Integer.getInteger("kanban.load.rate", 100);
+    private static final int SECONDS = Integer.getInteger("kanban.load.seconds", 30);
+    private static final String MIX = System.getProperty("kanban.load.mix", "add:30,move:30,update:20,delete:10,chat:10");
+
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final long DRAIN_TIMEOUT_MS = 10000;
+
+    private static final String[] OPS = {"add", "move", "update", "delete", "chat"};
+
+    // Column names taken from the first board snapshot
+    private static volatile List<String> columns;
+
+    private static final Map<String, LatencyRecorder> latencies = new LinkedHashMap<>();
+    private static final Map<String, AtomicLong> rejected = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws Exception {
+        int[] weights = parseMix(MIX);
+        for (String op : OPS) {
+            latencies.put(op, new LatencyRecorder());
+            rejected.put(op, new AtomicLong());
+        }
+
+        System.out.println("Connecting " + CLIENTS + " clients (" + EDITORS + " editors) to " + HOST + ":" + PORT);
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            connections.add(new Connection("load-" + i));
+        }
+        while (columns == null) {
+            Thread.sleep(10);
+        }
+        System.out.println("Connected, board columns " + columns);
+        System.out.println("Sending " + RATE + " commands/s for " + SECONDS + " s, mix " + MIX);
+
+        // Open-loop driver: commands go out on schedule whether or not earlier ones were answered
+        long start = System.nanoTime();
+        long end = start + SECONDS * 1_000_000_000L;
+        long nextReport = start + REPORT_INTERVAL_MS * 1_000_000L;
+        long sent = 0;
+        long reportedCompleted = 0;
+        while (System.nanoTime() < end) {
+            long due = (System.nanoTime() - start) * RATE / 1_000_000_000L;
+            while (sent < due) {
+                Connection editor = connections.get(ThreadLocalRandom.current().nextInt(EDITORS));
+                editor.send(pickOp(weights));
+                sent++;
+            }
+
+            if (System.nanoTime() >= nextReport) {
+                long completed = completedCount();
+                System.out.printf("%4d s  sent %8d  completed %8d  %8.1f/s%n",
+                        (System.nanoTime() - start) / 1_000_000_000L, sent, completed,
+                        (completed - reportedCompleted) * 1000.0 / REPORT_INTERVAL_MS);
+                reportedCompleted = completed;
+                nextReport += REPORT_INTERVAL_MS * 1_000_000L;
+            }
+            Thread.sleep(1);
+        }
+        double sendSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Wait for outstanding answers before reporting
+        long drainEnd = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (outstandingCount(connections) > 0 && System.currentTimeMillis() < drainEnd) {
+            Thread.sleep(10);
+        }
+        long unanswered = outstandingCount(connections);
+
+        report(sent, sendSeconds, unanswered);
+
+        // Take the generated tasks off the board again before disconnecting
+        for (Connection connection : connections) {
+            connection.cleanUp();
+        }
+        drainEnd = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+        while (cleanupCount(connections) > 0 && System.currentTimeMillis() < drainEnd) {
+            Thread.sleep(10);
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        System.exit(0);
+    }
+
+    private static int[] parseMix(String mix) {
+        int[] weights = new int[OPS.length];
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int index = Arrays.asList(OPS).indexOf(parts[0]);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown command in mix: " + parts[0]);
+            }
+            weights[index] = Integer.parseInt(parts[1]);
+        }
+        return weights;
+    }
+
+    private static String pickOp(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return OPS[i];
+            }
+        }
+        return OPS[0];
+    }
+
+    private static long completedCount() {
+        long completed = 0;
+        for (String op : OPS) {
+            completed += latencies.get(op).count() + rejected.get(op).get();
+        }
+        return completed;
+    }
+
+    private static long outstandingCount(List<Connection> connections) {
+        long outstanding = 0;
+        for (Connection connection : connections) {
+            outstanding += connection.outstanding.size() + connection.awaitingBroadcast.size()
+                    + connection.outstandingChat.size();
+        }
+        return outstanding;
+    }
+
+    private static long cleanupCount(List<Connection> connections) {
+        long pending = 0;
+        for (Connection connection : connections) {
+            pending += connection.cleanupPending.size();
+        }
+        return pending;
+    }
+
+    private static void report(long sent, double seconds, long unanswered) {
+        System.out.println();
+        System.out.printf("Sent %d commands in %.1f s (%.1f/s), %d completed, %d unanswered%n",
+                sent, seconds, sent / seconds, completedCount(), unanswered);
+        System.out.printf("%-8s %8s %8s %9s %9s %9s %9s %9s%n",
+                "command", "visible", "rejected", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (String op : OPS) {
+            long[] sorted = latencies.get(op).sorted();
+            System.out.printf("%-8s %8d %8d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                    op, sorted.length, rejected.get(op).get(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * One simulated user with its own socket and reader thread
+     */
+    private static class Connection {
+        private static final int BROADCAST_HISTORY = 256;
+
+        private final String username;
+        private final Socket socket;
+        private final PrintWriter out;
+        private final AtomicLong nextSeq = new AtomicLong(1);
+
+        // Tasks this user created and the column each is in, only touched by the driver thread
+        private final Map<String, String> ownTasks = new LinkedHashMap<>();
+        private long nextTaskNumber;
+
+        // Commands waiting for ACK/NACK by sequence number, and chat messages waiting for their echo
+        private final Map<Long, Sent> outstanding = new ConcurrentHashMap<>();
+        private final Map<String, Sent> outstandingChat = new ConcurrentHashMap<>();
+        private final Set<Long> cleanupPending = ConcurrentHashMap.newKeySet();
+
+        // Recent board messages and acknowledged edits whose broadcast has not arrived yet, reader thread only
+        private final long[] broadcastVersions = new long[BROADCAST_HISTORY];
+        private final long[] broadcastNanos = new long[BROADCAST_HISTORY];
+        private int broadcastCount;
+        private final Map<Sent, Long> awaitingBroadcast = new ConcurrentHashMap<>();
+
+        Connection(String username) throws IOException {
+            this.username = username;
+            this.socket = new Socket(HOST, PORT);
+            this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream())), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+
+            Thread reader = new Thread(() -> readLoop(in), "load-reader-" + username);
+            reader.setDaemon(true);
+            reader.start();
+
+            // Format: LOGIN|username
+            out.println("LOGIN|" + username);
+        }
+
+        /**
+         * Send one command of the given kind, on the driver thread
+         */
+        void send(String op) {
+            List<String> boardColumns = columns;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+
+            // Edits of existing tasks need a task of our own, so start with an add
+            if (ownTasks.isEmpty() && !op.equals("chat")) {
+                op = "add";
+            }
+
+            if (op.equals("chat")) {
+                String token = username + "-" + nextSeq.getAndIncrement();
+                outstandingChat.put(token, new Sent(op, System.nanoTime()));
+                out.println("CHAT_MESSAGE|load " + token);
+                return;
+            }
+
+            String command;
+            if (op.equals("add")) {
+                String taskId = username + "-task-" + nextTaskNumber++;
+                String column = boardColumns.get(0);
+                ownTasks.put(taskId, column);
+                command = "ADD_TASK|" + column + "|" + taskId + "|Load task|Generated by LoadGenerator|" + username + "|";
+            } else {
+                String taskId = randomOwnTask(random);
+                String column = ownTasks.get(taskId);
+                if (op.equals("move")) {
+                    String target = boardColumns.get(random.nextInt(boardColumns.size()));
+                    ownTasks.put(taskId, target);
+                    command = "MOVE_TASK|" + taskId + "|" + column + "|" + target;
+                } else if (op.equals("update")) {
+                    command = "UPDATE_TASK|" + column + "|" + taskId + "|Load task " + random.nextInt(1000)
+                            + "|Updated by LoadGenerator|" + username + "|";
+                } else {
+                    ownTasks.remove(taskId);
+                    command = "DELETE_TASK|" + column + "|" + taskId;
+                }
+            }
+
+            long seq = nextSeq.getAndIncrement();
+            outstanding.put(seq, new Sent(op, System.nanoTime()));
+            out.println(command + "|" + seq);
+        }
+
+        private String randomOwnTask(ThreadLocalRandom random) {
+            int skip = random.nextInt(ownTasks.size());
+            for (String taskId : ownTasks.keySet()) {
+                if (skip-- == 0) {
+                    return taskId;
+                }
+            }
+            throw new IllegalStateException("No task to pick");
+        }
+
+        void cleanUp() {
+            for (Map.Entry<String, String> task : ownTasks.entrySet()) {
+                long seq = nextSeq.getAndIncrement();
+                cleanupPending.add(seq);
+                out.println("DELETE_TASK|" + task.getValue() + "|" + task.getKey() + "|" + seq);
+            }
+            ownTasks.clear();
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+
+        private void readLoop(BufferedReader in) {
+            try {
+                String message;
+                while ((message = in.readLine()) != null) {
+                    handle(message, System.nanoTime());
+                }
+            } catch (IOException e) {
+                // Connection closed
+            }
+        }
+
+        private void handle(String message, long now) {
+            if (message.equals("PING")) {
+                out.println("PONG");
+            } else if (message.startsWith("BOARD_UPDATE|") || message.startsWith("BOARD_EVENT|")) {
+                // Format: BOARD_UPDATE|epoch|version|boardData or BOARD_EVENT|epoch|version|event
+                int versionStart = message.indexOf('|', message.indexOf('|') + 1) + 1;
+                int versionEnd = message.indexOf('|', versionStart);
+                long version = Long.parseLong(message.substring(versionStart, versionEnd));
+                if (columns == null && message.startsWith("BOARD_UPDATE|")) {
+                    columns = parseColumns(message.substring(versionEnd + 1));
+                }
+                recordBroadcast(version, now);
+            } else if (message.startsWith("ACK|") || message.startsWith("NACK|")) {
+                handleReply(message);
+            } else if (message.startsWith("CHAT|" + username + "|load ")) {
+                // Format: CHAT|username|message
+                Sent sent = outstandingChat.remove(message.substring(("CHAT|" + username + "|load ").length()));
+                if (sent != null) {
+                    latencies.get(sent.op).record(now - sent.nanos);
+                }
+            }
+        }
+
+        /**
+         * Handle the server's answer to one of our edits.
+         * Format: ACK|seq|version or NACK|seq|reason
+         */
+        private void handleReply(String message) {
+            String[] parts = message.split("\\|", 3);
+            long seq = Long.parseLong(parts[1]);
+            if (cleanupPending.remove(seq)) {
+                return;
+            }
+
+            Sent sent = outstanding.remove(seq);
+            if (sent == null) {
+                return;
+            }
+            if (parts[0].equals("NACK")) {
+                rejected.get(sent.op).incrementAndGet();
+                return;
+            }
+
+            long version = Long.parseLong(parts[2]);
+            long visibleAt = firstBroadcastSince(sent.nanos, version);
+            if (visibleAt != 0) {
+                latencies.get(sent.op).record(visibleAt - sent.nanos);
+            } else {
+                awaitingBroadcast.put(sent, version);
+            }
+        }
+
+        private void recordBroadcast(long version, long now) {
+            broadcastVersions[broadcastCount % BROADCAST_HISTORY] = version;
+            broadcastNanos[broadcastCount % BROADCAST_HISTORY] = now;
+            broadcastCount++;
+
+            Iterator<Map.Entry<Sent, Long>> awaiting = awaitingBroadcast.entrySet().iterator();
+            while (awaiting.hasNext()) {
+                Map.Entry<Sent, Long> entry = awaiting.next();
+                if (version >= entry.getValue()) {
+                    latencies.get(entry.getKey().op).record(now - entry.getKey().nanos);
+                    awaiting.remove();
+                }
+            }
+        }
+
+        /**
+         * Arrival time of the first board message received after sentNanos at or past the version,
+         * or 0 if it has not arrived yet
+         */
+        private long firstBroadcastSince(long sentNanos, long version) {
+            for (int i = Math.max(0, broadcastCount - BROADCAST_HISTORY); i < broadcastCount; i++) {
+                int slot = i % BROADCAST_HISTORY;
+                if (broadcastNanos[slot] >= sentNanos && broadcastVersions[slot] >= version) {
+                    return broadcastNanos[slot];
+                }
+            }
+            return 0;
+        }
+
+        private static List<String> parseColumns(String boardData) {
+            List<String> names = new ArrayList<>();
+            for (String column : boardData.split("\\|")) {
+                names.add(column.substring(0, column.indexOf(':')));
+            }
+            return Collections.unmodifiableList(names);
+        }
+    }
+
+    /**
+     * A command that was sent, waiting to become visible
+     */
+    private static class Sent {
+        private final String op;
+        private final long nanos;
+
+        Sent(String op, long nanos) {
+            this.op = op;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Collects latency samples in nanoseconds for one command type
+     */
+    private static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int size;
+
+        synchronized void record(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        synchronized long count() {
+            return size;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
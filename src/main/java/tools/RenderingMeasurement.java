@@ -0,0 +1,134 @@
+package main.java.tools;
+
+import main.java.client.TaskCardRenderer;
+import main.java.client.TaskData;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.image.BufferedImage;
+
+/**
+ * Measures the memory and frame time of one board column holding many tasks, comparing
+ * a panel with one card component per task against the virtualized list rendering.
+ * Runs headless: java -cp target/classes main.java.tools.RenderingMeasurement [tasks]
+ */
+public class RenderingMeasurement {
+    private static final int VIEWPORT_WIDTH = 260;
+    private static final int VIEWPORT_HEIGHT = 700;
+    private static final int FRAMES = 200;
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+
+        TaskData[] tasks = new TaskData[taskCount];
+        for (int i = 0; i < taskCount; i++) {
+            tasks[i] = new TaskData("task-" + i, "Task " + i, "Description " + i, "user" + (i % 50), "2025-01-01");
+        }
+
+        System.out.println("Column with " + taskCount + " tasks, " + VIEWPORT_WIDTH + "x" + VIEWPORT_HEIGHT + " viewport");
+
+        // Warm up both paths once so class loading and JIT do not skew the first measurement
+        measure("warm-up", () -> componentPerCard(tasks), false);
+        measure("warm-up", () -> virtualizedList(tasks), false);
+
+        measure("component per card", () -> componentPerCard(tasks), true);
+        measure("virtualized list", () -> virtualizedList(tasks), true);
+    }
+
+    private static void measure(String name, java.util.function.Supplier<JComponent> build, boolean print) {
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        JComponent column = build.get();
+
+        JScrollPane scrollPane = new JScrollPane(column);
+        scrollPane.setSize(VIEWPORT_WIDTH, VIEWPORT_HEIGHT);
+        scrollPane.validate();
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long heapAfter = usedHeap();
+
+        // Scroll through the column, painting a frame at each position
+        BufferedImage frame = new BufferedImage(VIEWPORT_WIDTH, VIEWPORT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        int step = Math.max(1, (scrollBar.getMaximum() - scrollBar.getVisibleAmount()) / FRAMES);
+        long paintStart = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            scrollBar.setValue(i * step);
+            scrollPane.validate();
+            Graphics2D g = frame.createGraphics();
+            scrollPane.paint(g);
+            g.dispose();
+        }
+        double frameMillis = (System.nanoTime() - paintStart) / 1e6 / FRAMES;
+
+        if (print) {
+            System.out.printf("%-20s build+layout %6d ms   retained heap %7.1f MB   frame %7.3f ms%n",
+                    name, buildMillis, (heapAfter - heapBefore) / (1024.0 * 1024.0), frameMillis);
+        }
+
+        // Keep the column reachable until after the heap was measured
+        column.setName(name);
+    }
+
+    /**
+     * The previous rendering: one card panel per task, each with its own labels, border, menu and listeners
+     */
+    private static JComponent componentPerCard(TaskData[] tasks) {
+        JPanel panel = new JPanel();
+        panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
+        panel.setBackground(Color.LIGHT_GRAY);
+
+        for (TaskData task : tasks) {
+            JPanel card = new JPanel(new BorderLayout(5, 5));
+            card.setPreferredSize(new Dimension(TaskCardRenderer.CARD_WIDTH, TaskCardRenderer.CARD_HEIGHT));
+            card.setMinimumSize(new Dimension(TaskCardRenderer.CARD_WIDTH, TaskCardRenderer.CARD_HEIGHT));
+            card.setMaximumSize(new Dimension(TaskCardRenderer.CARD_WIDTH, TaskCardRenderer.CARD_HEIGHT));
+            card.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createEmptyBorder(5, 5, 5, 5),
+                BorderFactory.createLineBorder(Color.BLACK)
+            ));
+            card.setBackground(Color.WHITE);
+
+            JLabel titleLabel = new JLabel(task.getTitle());
+            titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD));
+            card.add(titleLabel, BorderLayout.NORTH);
+            card.add(new JLabel("Assignee: " + task.getAssignee()), BorderLayout.SOUTH);
+
+            JPopupMenu contextMenu = new JPopupMenu();
+            contextMenu.add(new JMenuItem("View Details"));
+            contextMenu.add(new JMenuItem("Edit"));
+            contextMenu.add(new JMenuItem("Delete"));
+            card.setComponentPopupMenu(contextMenu);
+            card.setTransferHandler(new TransferHandler("name"));
+            card.addMouseListener(new MouseAdapter() { });
+            card.addMouseMotionListener(new MouseAdapter() { });
+
+            panel.add(card);
+        }
+        return panel;
+    }
+
+    /**
+     * The virtualized rendering: one list model per column and a shared card renderer
+     */
+    private static JComponent virtualizedList(TaskData[] tasks) {
+        DefaultListModel<TaskData> model = new DefaultListModel<>();
+        for (TaskData task : tasks) {
+            model.addElement(task);
+        }
+
+        JList<TaskData> list = new JList<>(model);
+        list.setBackground(Color.LIGHT_GRAY);
+        new TaskCardRenderer().install(list);
+        return list;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}